@@ -7,6 +7,8 @@ import mate.cafecatalog.model.Role;
 import mate.cafecatalog.security.LogoutService;
 import mate.cafecatalog.security.jwt.JwtConfigurer;
 import mate.cafecatalog.security.jwt.JwtTokenProvider;
+import mate.cafecatalog.security.ratelimit.RateLimitFilter;
+import mate.cafecatalog.security.ratelimit.RateLimiter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -17,6 +19,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -30,6 +33,7 @@ public class SecurityConfig {
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
     private final AuthEntryPointJwt unauthorizedHandler;
+    private final RateLimiter rateLimiter;
 
     @Bean
     public DaoAuthenticationProvider authenticationProvider() {
@@ -52,15 +56,21 @@ public class SecurityConfig {
                 .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 .and()
                 .authorizeRequests()
+                .antMatchers("/api/export/**")
+                .hasRole(Role.RoleName.ADMIN.name())
                 .antMatchers("/api/cabinet/*")
                 .hasRole(Role.RoleName.USER.name())
-                .antMatchers("/", "/api/cafe", "/api/cafe/*", "/api/auth/**")
+                .antMatchers("/", "/api/cafe", "/api/cafe/*", "/api/cafe/*/comments",
+                        "/api/auth/**")
                 .permitAll()
                 .anyRequest()
                 .authenticated()
                 .and()
                 .apply(new JwtConfigurer(jwtTokenProvider))
                 .and()
+                // after the jwt filter so per-user limits see the authenticated user
+                .addFilterAfter(new RateLimitFilter(rateLimiter),
+                        UsernamePasswordAuthenticationFilter.class)
                 .logout()
                 .logoutUrl("/api/auth/logout")
                 .addLogoutHandler(logoutService)
@@ -1,6 +1,7 @@
 package mate.cafecatalog.controller;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
@@ -10,13 +11,11 @@ import mate.cafecatalog.dto.request.UserLoginDto;
 import mate.cafecatalog.dto.request.UserRegistrationDto;
 import mate.cafecatalog.dto.response.UserLoginResponseInfo;
 import mate.cafecatalog.dto.response.UserResponseDto;
-import mate.cafecatalog.exception.AuthenticationException;
 import mate.cafecatalog.model.Role;
 import mate.cafecatalog.model.User;
 import mate.cafecatalog.security.AuthenticationService;
 import mate.cafecatalog.security.jwt.JwtTokenProvider;
-import mate.cafecatalog.security.token.Token;
-import mate.cafecatalog.security.token.TokenService;
+import mate.cafecatalog.security.token.TokenRevocation;
 import mate.cafecatalog.service.UserService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -33,29 +32,29 @@ public class AuthenticationController {
     private final UserMapper userMapper;
 
     private final JwtTokenProvider jwtTokenProvider;
-    private final TokenService tokenService;
+    private final TokenRevocation tokenRevocation;
     private final UserService userService;
+    private final Executor applicationTaskExecutor;
 
     @PostMapping("/register")
-    public UserResponseDto register(@RequestBody @Valid UserRegistrationDto userRegistrationDto) {
-        User user = authenticationService.register(userRegistrationDto.getEmail(),
-                userRegistrationDto.getPassword(), userRegistrationDto.getUsername());
-        return userMapper.mapToDto(user);
+    public CompletableFuture<UserResponseDto> register(@RequestBody @Valid
+                                                       UserRegistrationDto userRegistrationDto) {
+        return authenticationService.register(userRegistrationDto.getEmail(),
+                userRegistrationDto.getPassword(), userRegistrationDto.getUsername())
+                .thenApply(userMapper::mapToDto);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<Object> login(@RequestBody @Valid UserLoginDto userLoginDto)
-            throws AuthenticationException {
-        User user = authenticationService.login(userLoginDto.getUsername(),
-                userLoginDto.getPassword());
-
-        revokeAllUserTokens(user);
-        String accessToken = getToken(user, false);
-        String refreshToken = getToken(user, true);
-        UserLoginResponseInfo responseBody =
-                userMapper.mapToLoginResponseInfo(user, accessToken, refreshToken);
-        return new ResponseEntity<>(responseBody, HttpStatus.OK);
-
+    public CompletableFuture<ResponseEntity<Object>> login(@RequestBody @Valid
+                                                           UserLoginDto userLoginDto) {
+        return authenticationService.login(userLoginDto.getUsername(), userLoginDto.getPassword())
+                .thenApplyAsync(user -> {
+                    String accessToken = getToken(user, false);
+                    String refreshToken = getToken(user, true);
+                    UserLoginResponseInfo responseBody =
+                            userMapper.mapToLoginResponseInfo(user, accessToken, refreshToken);
+                    return new ResponseEntity<>(responseBody, HttpStatus.OK);
+                }, applicationTaskExecutor);
     }
 
     @PostMapping("/refresh-token")
@@ -66,7 +65,6 @@ public class AuthenticationController {
         UserLoginResponseInfo responseBody = null;
         // this validation can be removed, because it validates at JwtFilter
         if (jwtTokenProvider.validateRefreshToken(refreshToken)) {
-            revokeAllUserTokens(user);
             String accessToken = getToken(user, false);
             responseBody =
                     userMapper.mapToLoginResponseInfo(user, accessToken, refreshToken);
@@ -75,31 +73,15 @@ public class AuthenticationController {
     }
 
     private String getToken(User user, boolean isRefreshToken) {
-        String token = jwtTokenProvider.createToken(user.getEmail(),
+        Long generation = isRefreshToken ? null : tokenRevocation.startSession(user);
+        String token = jwtTokenProvider.createToken(user.getId(), user.getEmail(),
                 user.getRoles().stream()
                         .map(Role::getRoleName)
                         .map(Enum::name)
-                        .collect(Collectors.toList()), isRefreshToken);
+                        .collect(Collectors.toList()), generation, isRefreshToken);
         if (! isRefreshToken) {
-            Token modelToken = Token.builder()
-                    .user(user)
-                    .token(token)
-                    .expired(false)
-                    .revoked(false)
-                    .build();
-            tokenService.save(modelToken);
+            tokenRevocation.registerSession(user, token, jwtTokenProvider.getExpiration(token));
         }
         return token;
     }
-
-    private void revokeAllUserTokens(User user) {
-        List<Token> validTokens = tokenService.findAllValidTokensByUser(user.getId());
-        if (! validTokens.isEmpty()) {
-            validTokens.forEach(token -> {
-                token.setRevoked(true);
-                token.setExpired(true);
-            });
-            tokenService.saveAll(validTokens);
-        }
-    }
 }
@@ -3,16 +3,30 @@ package mate.cafecatalog.controller;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import mate.cafecatalog.dto.mapper.ResponseDtoMapper;
 import mate.cafecatalog.dto.mapper.ShortInfoCafeMapper;
 import mate.cafecatalog.dto.response.CafeResponseDto;
+import mate.cafecatalog.dto.response.CafeViewsResponseDto;
+import mate.cafecatalog.dto.response.CommentResponseDto;
 import mate.cafecatalog.dto.response.ShortInfoCafeResponseDto;
 import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.security.AuthenticatedUser;
 import mate.cafecatalog.service.CafeService;
+import mate.cafecatalog.service.CommentService;
+import mate.cafecatalog.service.analytics.CafeViewAnalytics;
+import mate.cafecatalog.service.analytics.CafeViewCounter;
+import mate.cafecatalog.service.cache.CafeDetailCache;
+import mate.cafecatalog.service.search.CafeSearchIndex;
+import mate.cafecatalog.util.CursorPage;
 import mate.cafecatalog.util.SortParser;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -20,21 +34,27 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
+@Validated
 @RequiredArgsConstructor
 @RequestMapping("/api/cafe")
 public class CafeController {
     private static final String FILTER_KEY_PAGE = "page";
     private static final String FILTER_KEY_COUNT = "count";
     private static final String FILTER_KEY_SORT = "sortBy";
+    private static final String FILTER_KEY_AFTER = "after";
     private final CafeService cafeService;
+    private final CommentService commentService;
     private final ResponseDtoMapper<CafeResponseDto, Cafe> cafeResponseDtoMapper;
     private final ResponseDtoMapper<ShortInfoCafeResponseDto, Cafe> shortInfoCafeResponseDtoMapper;
     private final SortParser sortParser;
+    private final CafeDetailCache cafeDetailCache;
+    private final CafeViewCounter cafeViewCounter;
+    private final CafeViewAnalytics cafeViewAnalytics;
 
     @GetMapping
-    public List<ShortInfoCafeResponseDto> getAll(@RequestParam(defaultValue = "0")
+    public List<ShortInfoCafeResponseDto> getAll(@RequestParam(defaultValue = "0") @Min(0)
                                         Integer page,
-                                                 @RequestParam (defaultValue = "6")
+                                                 @RequestParam (defaultValue = "6") @Min(1)
                                         Integer count,
                                                  @RequestParam (defaultValue = "id")
                                         String sortBy,
@@ -55,8 +75,66 @@ public class CafeController {
                 .collect(Collectors.toList());
     }
 
+    @GetMapping(params = FILTER_KEY_AFTER)
+    public CursorPage<ShortInfoCafeResponseDto> getAllAfter(@RequestParam String after,
+                                                            @RequestParam (defaultValue = "6")
+                                                            @Min(1) Integer count,
+                                                            @RequestParam (defaultValue = "id")
+                                                            String sortBy,
+                                                            @RequestParam
+                                                            Map<String, String> params) {
+        params.remove(FILTER_KEY_AFTER);
+        params.remove(FILTER_KEY_COUNT);
+        params.remove(FILTER_KEY_SORT);
+        return cafeService.findAllAfter(params, after, count, sortParser.parseWithTiebreak(sortBy))
+                .map(shortInfoCafeResponseDtoMapper::mapToDto);
+    }
+
+    @GetMapping("/nearest")
+    public List<ShortInfoCafeResponseDto> getNearest(@RequestParam (defaultValue = "6")
+                                                     @Min(1) Integer count,
+                                                     @RequestParam
+                                                     Map<String, String> params) {
+        params.remove(FILTER_KEY_COUNT);
+        return cafeService.findNearest(params, count)
+                .stream()
+                .map(shortInfoCafeResponseDtoMapper::mapToDto)
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("/suggest")
+    public List<String> suggest(@RequestParam String q,
+                                @RequestParam (defaultValue = "10") @Min(1)
+                                @Max(CafeSearchIndex.MAX_SUGGESTIONS) Integer count) {
+        return cafeService.suggest(q, count);
+    }
+
+    @GetMapping("/{id}/comments")
+    public CursorPage<CommentResponseDto> getComments(@PathVariable Long id,
+                                                      @RequestParam (defaultValue = "")
+                                                      String after,
+                                                      @RequestParam (defaultValue = "10")
+                                                      @Min(1) Integer count) {
+        return commentService.findLatestByCafeId(id, after, count);
+    }
+
+    @GetMapping("/most-viewed")
+    public List<CafeViewsResponseDto> getMostViewed(@RequestParam (defaultValue = "10")
+                                                    @Min(1) Integer count) {
+        return cafeViewAnalytics.findMostViewed(count);
+    }
+
     @GetMapping("/{id}")
-    public CafeResponseDto get(@PathVariable Long id) {
-        return cafeResponseDtoMapper.mapToDto(cafeService.get(id));
+    public CafeResponseDto get(@PathVariable Long id,
+                               @AuthenticationPrincipal AuthenticatedUser principal,
+                               HttpServletRequest request) {
+        CafeResponseDto cafe = cafeDetailCache.get(id,
+                cafeId -> cafeResponseDtoMapper.mapToDto(cafeService.get(cafeId)));
+        if (principal != null) {
+            cafeViewCounter.recordView(id, principal.getId());
+        } else {
+            cafeViewCounter.recordView(id, request.getRemoteAddr());
+        }
+        return cafe;
     }
 }
@@ -0,0 +1,75 @@
+package mate.cafecatalog.controller;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import mate.cafecatalog.service.export.CatalogExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+public class ExportController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final String GZIP = "gzip";
+    private static final int GZIP_BUFFER_SIZE = 8192;
+    private static final String TIMEOUT_INTERCEPTOR_KEY = "exportTimeout";
+    private final CatalogExporter catalogExporter;
+    @Value("${export.request-timeout:30m}")
+    private Duration requestTimeout;
+
+    @GetMapping("/cafes")
+    public ResponseEntity<StreamingResponseBody> exportCafes(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, defaultValue = "")
+            String acceptEncoding, HttpServletRequest request) {
+        return stream(acceptEncoding, request, catalogExporter::exportCafes);
+    }
+
+    @GetMapping("/comments")
+    public ResponseEntity<StreamingResponseBody> exportComments(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, defaultValue = "")
+            String acceptEncoding, HttpServletRequest request) {
+        return stream(acceptEncoding, request, catalogExporter::exportComments);
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(String acceptEncoding,
+                                                         HttpServletRequest request,
+                                                         StreamingResponseBody export) {
+        // a whole export outlasts the default async timeout, which stays short for the
+        // other asynchronous endpoints, so only this request gets the long one
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(
+                TIMEOUT_INTERCEPTOR_KEY, new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest,
+                                                             Callable<T> task) {
+                        ((AsyncWebRequest) webRequest).setTimeout(requestTimeout.toMillis());
+                    }
+                });
+        if (!acceptEncoding.contains(GZIP)) {
+            return ResponseEntity.ok().contentType(NDJSON).body(export);
+        }
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_ENCODING, GZIP)
+                .body(out -> {
+                    // sync flush, so every chunk flushed by the export reaches the client
+                    GZIPOutputStream gzip = new GZIPOutputStream(out, GZIP_BUFFER_SIZE, true);
+                    export.writeTo(gzip);
+                    gzip.finish();
+                });
+    }
+}
@@ -1,24 +1,30 @@
 package mate.cafecatalog.controller;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import mate.cafecatalog.dto.mapper.CommentMapper;
+import mate.cafecatalog.dto.mapper.ResponseDtoMapper;
 import mate.cafecatalog.dto.mapper.ShortInfoCafeMapper;
+import mate.cafecatalog.dto.mapper.UserMapper;
 import mate.cafecatalog.dto.request.CommentRequestDto;
 import mate.cafecatalog.dto.response.CommentResponseDto;
 import mate.cafecatalog.dto.response.ShortInfoCafeResponseDto;
-import mate.cafecatalog.exception.DataProcessingException;
+import mate.cafecatalog.dto.response.UserResponseDto;
 import mate.cafecatalog.model.Cafe;
-import mate.cafecatalog.model.Comment;
-import mate.cafecatalog.model.User;
+import mate.cafecatalog.security.AuthenticatedUser;
 import mate.cafecatalog.service.CafeService;
 import mate.cafecatalog.service.CommentService;
 import mate.cafecatalog.service.UserService;
+import mate.cafecatalog.util.CursorPage;
 import mate.cafecatalog.util.SortParser;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -27,30 +33,30 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
+@Validated
 @RequiredArgsConstructor
 @RequestMapping("/api/cabinet")
 public class UserController {
+    private static final String FILTER_KEY_AFTER = "after";
     private final UserService userService;
     private final CafeService cafeService;
     private final CommentService commentService;
     private final CommentMapper commentMapper;
+    private final UserMapper userMapper;
     private final SortParser sortParser;
+    private final ResponseDtoMapper<ShortInfoCafeResponseDto, Cafe> shortInfoCafeResponseDtoMapper;
 
     @GetMapping
-    public List<ShortInfoCafeResponseDto> getUserFavourites(@RequestParam(defaultValue = "0")
-                                                                Integer page,
+    public List<ShortInfoCafeResponseDto> getUserFavourites(@AuthenticationPrincipal
+                                                                AuthenticatedUser principal,
+                                                            @RequestParam(defaultValue = "0")
+                                                                @Min(0) Integer page,
                                                             @RequestParam (defaultValue = "6")
-                                                                Integer count,
+                                                                @Min(1) Integer count,
                                                             @RequestParam (defaultValue = "id")
                                                                 String sortBy) {
-        String email = userService.getUserEmail();
-        User user = userService.findByEmail(email).orElseThrow(
-                () -> new DataProcessingException("User with email " + email + " not found"));
-        List<Long> favourites = user.getFavourites()
-                .stream()
-                .map(Cafe::getId)
-                .collect(Collectors.toList());
-        Page<Cafe> pages = cafeService.findAllByIdIn(favourites, PageRequest.of(page, count, sortParser.parse(sortBy)));
+        Page<Cafe> pages = cafeService.findFavourites(principal.getId(),
+                PageRequest.of(page, count, sortParser.parse(sortBy)));
         return pages.stream()
                 .map(c -> new ShortInfoCafeMapper().mapToDto(c))
                 .peek(c -> {
@@ -62,28 +68,53 @@ public class UserController {
                 .collect(Collectors.toList());
     }
 
+    @GetMapping(params = FILTER_KEY_AFTER)
+    public CursorPage<ShortInfoCafeResponseDto> getUserFavouritesAfter(@AuthenticationPrincipal
+                                                                       AuthenticatedUser principal,
+                                                                       @RequestParam String after,
+                                                                       @RequestParam
+                                                                       (defaultValue = "6")
+                                                                       @Min(1) Integer count,
+                                                                       @RequestParam
+                                                                       (defaultValue = "id")
+                                                                       String sortBy) {
+        return cafeService.findFavouritesAfter(principal.getId(), after, count,
+                        sortParser.parseWithTiebreak(sortBy))
+                .map(shortInfoCafeResponseDtoMapper::mapToDto);
+    }
+
+    @GetMapping("/profile")
+    public UserResponseDto getProfile(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return userMapper.mapToDto(userService.findById(principal.getId()));
+    }
+
+    @GetMapping("/comments")
+    public CursorPage<CommentResponseDto> getComments(@AuthenticationPrincipal
+                                                          AuthenticatedUser principal,
+                                                      @RequestParam (defaultValue = "")
+                                                          String after,
+                                                      @RequestParam (defaultValue = "10")
+                                                          @Min(1) Integer count) {
+        return commentService.findLatestByUserId(principal.getId(), after, count);
+    }
+
     @PostMapping("/favourite")
-    public void addToFavourites(@RequestParam Long cafeId) {
-        String email = userService.getUserEmail();
-        User user = userService.findByEmail(email).orElseThrow(
-                () -> new DataProcessingException("User with email " + email + " not found"));
-        Cafe cafe = cafeService.get(cafeId);
-        userService.addToFavourites(cafe, user);
+    public void addToFavourites(@AuthenticationPrincipal AuthenticatedUser principal,
+                                @RequestParam Long cafeId) {
+        userService.addToFavourites(principal.getId(), cafeId);
     }
 
     @PostMapping("/favourite/remove")
-    public void removeFromFavourites(@RequestParam Long cafeId) {
-        String email = userService.getUserEmail();
-        User user = userService.findByEmail(email).orElseThrow(
-                () -> new DataProcessingException("User with email " + email + " not found"));
-        Cafe cafe = cafeService.get(cafeId);
-        userService.removeFromFavourites(cafe, user);
+    public void removeFromFavourites(@AuthenticationPrincipal AuthenticatedUser principal,
+                                     @RequestParam Long cafeId) {
+        userService.removeFromFavourites(principal.getId(), cafeId);
     }
 
     @PostMapping("/comment")
-    public CommentResponseDto addComment(@RequestBody @Valid CommentRequestDto requestDto) {
-        Comment comment = commentService.add(commentMapper.mapToModel(requestDto));
-        cafeService.processRating(comment.getCafe().getId(), comment.getRating());
-        return commentMapper.mapToDto(comment);
+    public CompletableFuture<CommentResponseDto> addComment(@AuthenticationPrincipal
+                                                                AuthenticatedUser principal,
+                                                            @RequestBody @Valid
+                                                                CommentRequestDto requestDto) {
+        return commentService.add(commentMapper.mapToModel(requestDto), principal.getId());
     }
 }
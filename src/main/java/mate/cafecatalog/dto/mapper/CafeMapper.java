@@ -1,21 +1,28 @@
 package mate.cafecatalog.dto.mapper;
 
 import java.util.stream.Collectors;
-import lombok.RequiredArgsConstructor;
 import mate.cafecatalog.dto.request.CafeRequestDto;
 import mate.cafecatalog.dto.response.CafeResponseDto;
+import mate.cafecatalog.dto.response.CommentResponseDto;
 import mate.cafecatalog.model.Cafe;
 import mate.cafecatalog.model.Option;
 import mate.cafecatalog.model.PicturePath;
 import mate.cafecatalog.service.CommentService;
+import mate.cafecatalog.util.CursorPage;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
-@RequiredArgsConstructor
 public class CafeMapper implements RequestDtoMapper<CafeRequestDto, Cafe>,
         ResponseDtoMapper<CafeResponseDto, Cafe> {
     private final CommentService commentService;
-    private final CommentMapper commentMapper;
+    private final int commentsCount;
+
+    public CafeMapper(CommentService commentService,
+                      @Value("${cafe.detail.comments-count:10}") int commentsCount) {
+        this.commentService = commentService;
+        this.commentsCount = commentsCount;
+    }
 
     @Override
     public Cafe mapToModel(CafeRequestDto dto) {
@@ -51,10 +58,10 @@ public class CafeMapper implements RequestDtoMapper<CafeRequestDto, Cafe>,
                 .stream()
                 .map(PicturePath::getPath)
                 .collect(Collectors.toSet()));
-        dto.setComments(commentService.findAllByCafeId(cafe.getId())
-                .stream()
-                .map(commentMapper::mapToDto)
-                .collect(Collectors.toList()));
+        CursorPage<CommentResponseDto> comments = commentService.findLatestByCafeId(cafe.getId(),
+                "", commentsCount);
+        dto.setComments(comments.getItems());
+        dto.setNextCommentsCursor(comments.getNextCursor());
         return dto;
     }
 }
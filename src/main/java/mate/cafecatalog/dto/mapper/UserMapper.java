@@ -1,23 +1,43 @@
 package mate.cafecatalog.dto.mapper;
 
-import java.util.List;
 import java.util.stream.Collectors;
-import lombok.RequiredArgsConstructor;
+import mate.cafecatalog.dto.response.CommentResponseDto;
 import mate.cafecatalog.dto.response.UserLoginResponseInfo;
 import mate.cafecatalog.dto.response.UserResponseDto;
-import mate.cafecatalog.model.Cafe;
 import mate.cafecatalog.model.User;
+import mate.cafecatalog.service.CafeService;
 import mate.cafecatalog.service.CommentService;
+import mate.cafecatalog.service.UserService;
+import mate.cafecatalog.util.CursorPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 
+// builds the profile from a few projection queries instead of walking the user's
+// favourites and comments entity graph
 @Component
-@RequiredArgsConstructor
-public class UserMapper implements ResponseDtoMapper<UserResponseDto, User>{
-
+public class UserMapper implements ResponseDtoMapper<UserResponseDto, User> {
+    private final UserService userService;
+    private final CafeService cafeService;
     private final CommentService commentService;
-    private final CafeMapper cafeMapper;
+    private final ShortInfoCafeMapper shortInfoCafeMapper;
     private final RoleMapper roleMapper;
-    private final CommentMapper commentMapper;
+    private final int favouritesCount;
+    private final int commentsCount;
+
+    public UserMapper(UserService userService, CafeService cafeService,
+                      CommentService commentService, ShortInfoCafeMapper shortInfoCafeMapper,
+                      RoleMapper roleMapper,
+                      @Value("${cabinet.profile.favourites-count:6}") int favouritesCount,
+                      @Value("${cabinet.profile.comments-count:10}") int commentsCount) {
+        this.userService = userService;
+        this.cafeService = cafeService;
+        this.commentService = commentService;
+        this.shortInfoCafeMapper = shortInfoCafeMapper;
+        this.roleMapper = roleMapper;
+        this.favouritesCount = favouritesCount;
+        this.commentsCount = commentsCount;
+    }
 
     @Override
     public UserResponseDto mapToDto(User user) {
@@ -25,18 +45,21 @@ public class UserMapper implements ResponseDtoMapper<UserResponseDto, User>{
         dto.setId(user.getId());
         dto.setEmail(user.getEmail());
         dto.setUsername(user.getUsername());
-        dto.setFavourites(user.getFavourites()
+        dto.setFavouritesId(userService.findFavouriteIds(user.getId()));
+        dto.setFavourites(cafeService.findFavouritesAfter(user.getId(), "", favouritesCount,
+                        Sort.by("id"))
+                .getItems()
                 .stream()
-                .map(cafeMapper::mapToDto)
+                .map(shortInfoCafeMapper::mapToDto)
                 .collect(Collectors.toList()));
         dto.setRoles(user.getRoles()
                 .stream()
                 .map(roleMapper::mapToDto)
                 .collect(Collectors.toSet()));
-        dto.setComments(commentService.findAllByUserId(user.getId())
-                .stream()
-                .map(commentMapper::mapToDto)
-                .collect(Collectors.toList()));
+        CursorPage<CommentResponseDto> comments = commentService.findLatestByUserId(user.getId(),
+                "", commentsCount);
+        dto.setComments(comments.getItems());
+        dto.setNextCommentsCursor(comments.getNextCursor());
         return dto;
     }
 
@@ -46,10 +69,7 @@ public class UserMapper implements ResponseDtoMapper<UserResponseDto, User>{
         responseBody.setRefreshToken(refreshToken);
         responseBody.setEmail(user.getEmail());
         responseBody.setUsername(user.getUsername());
-        List<Long> favouritesId = user.getFavourites().
-                stream().map(Cafe::getId)
-                .collect(Collectors.toList());
-        responseBody.setFavouritesId(favouritesId);
+        responseBody.setFavouritesId(userService.findFavouriteIds(user.getId()));
         return responseBody;
     }
 }
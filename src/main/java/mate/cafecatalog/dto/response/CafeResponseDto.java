@@ -27,4 +27,5 @@ public class CafeResponseDto {
     private Set<String> optionNames;
     private Set<String> imageLink;
     private List<CommentResponseDto> comments;
+    private String nextCommentsCursor;
 }
@@ -0,0 +1,19 @@
+package mate.cafecatalog.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+@Setter
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class CafeViewsResponseDto {
+    private Long cafeId;
+    private String name;
+    private Long views;
+    private Long uniqueVisitors;
+}
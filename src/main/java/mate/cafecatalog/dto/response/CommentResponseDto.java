@@ -1,13 +1,17 @@
 package mate.cafecatalog.dto.response;
 
 import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
 @Setter
 @Getter
 @ToString
+@NoArgsConstructor
+@AllArgsConstructor
 public class CommentResponseDto {
     private Long id;
     private String text;
@@ -15,4 +19,16 @@ public class CommentResponseDto {
     private LocalDateTime publicityDate;
     private String cafeName;
     private String username;
+    // only set on a newly added comment, the cafe rating once it was counted
+    private Integer cafeRating;
+
+    public CommentResponseDto(Long id, String text, Integer rating, LocalDateTime publicityDate,
+                              String cafeName, String username) {
+        this.id = id;
+        this.text = text;
+        this.rating = rating;
+        this.publicityDate = publicityDate;
+        this.cafeName = cafeName;
+        this.username = username;
+    }
 }
@@ -13,7 +13,9 @@ public class UserResponseDto {
     private Long id;
     private String email;
     private String username;
-    private List<CafeResponseDto> favourites;
+    private List<Long> favouritesId;
+    private List<ShortInfoCafeResponseDto> favourites;
     private Set<RoleResponseDto> roles;
     private List<CommentResponseDto> comments;
+    private String nextCommentsCursor;
 }
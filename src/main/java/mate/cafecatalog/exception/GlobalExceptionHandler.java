@@ -5,6 +5,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Path;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +21,8 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 
 @ControllerAdvice
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
+    private static final String RETRY_AFTER_SECONDS = "1";
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(
             MethodArgumentNotValidException ex,
@@ -35,10 +40,26 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(body, headers, status);
     }
 
+    @ExceptionHandler(ConstraintViolationException.class)
+    protected ResponseEntity<Object> handleConstraintViolation(ConstraintViolationException ex,
+                                                               WebRequest request) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        int status = 400;
+        body.put("timestamp", LocalDateTime.now().toString());
+        body.put("status", status);
+        List<String> errors = ex.getConstraintViolations()
+                .stream()
+                .map(this::getErrorMessages)
+                .collect(Collectors.toList());
+        body.put("errors", errors);
+        return handleExceptionInternal(ex, body, new HttpHeaders(),
+                HttpStatus.valueOf(status), request);
+    }
+
     @ExceptionHandler(DataProcessingException.class)
     protected ResponseEntity<Object> handleDataException(RuntimeException ex, WebRequest request) {
         Map<String, Object> body = new LinkedHashMap<>();
-        int status = 500;
+        int status = 400;
         body.put("timestamp", LocalDateTime.now().toString());
         body.put("status", status);
         body.put("error", ex.getMessage());
@@ -68,6 +89,28 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                 HttpStatus.valueOf(status), request);
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    protected ResponseEntity<Object> handleServiceOverloadedException(RuntimeException ex,
+                                                                      WebRequest request) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        int status = 503;
+        body.put("timestamp", LocalDateTime.now().toString());
+        body.put("status", status);
+        body.put("error", ex.getMessage());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        return handleExceptionInternal(ex, body, headers, HttpStatus.valueOf(status), request);
+    }
+
+    // the last path node is the parameter name
+    private String getErrorMessages(ConstraintViolation<?> violation) {
+        String parameter = null;
+        for (Path.Node node : violation.getPropertyPath()) {
+            parameter = node.getName();
+        }
+        return parameter + " " + violation.getMessage();
+    }
+
     private String getErrorMessages(ObjectError error) {
         if (error instanceof FieldError) {
             String field = ((FieldError) error).getField();
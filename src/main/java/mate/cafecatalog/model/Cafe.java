@@ -37,6 +37,8 @@ public class Cafe {
     private Boolean alcohol;
     private Boolean eventRoom;
     private Integer rating;
+    private Long ratingSum;
+    private Long ratingCount;
     private String instagramLink;
     private String facebookLink;
     private String websiteLink;
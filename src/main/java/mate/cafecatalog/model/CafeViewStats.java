@@ -0,0 +1,22 @@
+package mate.cafecatalog.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.Data;
+
+@Data
+@Entity
+@Table(name = "cafe_views", indexes = @Index(name = "idx_cafe_views_views",
+        columnList = "views"))
+public class CafeViewStats {
+    @Id
+    private Long cafeId;
+    private Long views;
+    private Long uniqueVisitors;
+    // HyperLogLog registers of the visitors, merged on every flush
+    @Column(length = 1024)
+    private byte[] visitorsSketch;
+}
@@ -6,17 +6,26 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
 import lombok.Data;
 
 @Data
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_cafe_date", columnList = "cafe_id, publicityDate"),
+        @Index(name = "idx_comments_user_date", columnList = "user_id, publicityDate")})
 public class Comment {
+    // ids are handed out in blocks, so new comments can be inserted in JDBC batches
+    public static final int ID_ALLOCATION_SIZE = 100;
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "comments_id")
+    @TableGenerator(name = "comments_id", table = "id_generators",
+            pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "comments", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     @Column(length = 3000)
     private String text;
@@ -10,9 +10,12 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import lombok.Data;
 import mate.cafecatalog.security.token.Token;
 
@@ -29,7 +32,13 @@ public class User {
     private String password;
     @Column(unique = true, nullable = false)
     private String username;
+    private Long tokenGeneration;
     @ManyToMany
+    @JoinTable(name = "users_favourites",
+            joinColumns = @JoinColumn(name = "user_id"),
+            inverseJoinColumns = @JoinColumn(name = "favourites_id"),
+            uniqueConstraints = @UniqueConstraint(name = "uk_users_favourites",
+                    columnNames = {"user_id", "favourites_id"}))
     private List<Cafe> favourites = new ArrayList<>();
     @ManyToMany(fetch = FetchType.EAGER)
     private Set<Role> roles = new HashSet<>();
@@ -2,11 +2,63 @@ package mate.cafecatalog.repository;
 
 import java.util.List;
 import mate.cafecatalog.model.Cafe;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
-public interface CafeRepository extends JpaRepository<Cafe, Long>, JpaSpecificationExecutor<Cafe> {
-    Page<Cafe> findAllByIdIn(List<Long> favouriteIds, PageRequest pageRequest);
+public interface CafeRepository extends JpaRepository<Cafe, Long>, JpaSpecificationExecutor<Cafe>,
+        CafeRepositoryCustom {
+    // rating goes first as MySQL evaluates the assignments left to right on the updated row
+    @Modifying
+    @Query("UPDATE Cafe c SET c.rating = FLOOR((COALESCE(c.ratingSum, 0) + :ratingSum)"
+            + " / (COALESCE(c.ratingCount, 0) + :ratingCount)),"
+            + " c.ratingSum = COALESCE(c.ratingSum, 0) + :ratingSum,"
+            + " c.ratingCount = COALESCE(c.ratingCount, 0) + :ratingCount"
+            + " WHERE c.id = :cafeId")
+    int addRatings(Long cafeId, Long ratingSum, Long ratingCount);
+
+    @Query("SELECT c.rating FROM Cafe c WHERE c.id = :cafeId")
+    Integer findRatingById(Long cafeId);
+
+    @Modifying
+    @Query("UPDATE Cafe c SET"
+            + " c.ratingSum = (SELECT SUM(cm.rating) FROM Comment cm WHERE cm.cafe.id = c.id),"
+            + " c.ratingCount = (SELECT COUNT(cm.rating) FROM Comment cm WHERE cm.cafe.id = c.id)"
+            + " WHERE COALESCE(c.ratingCount, 0) <> (SELECT COUNT(cm.rating) FROM Comment cm"
+            + " WHERE cm.cafe.id = c.id)"
+            + " OR COALESCE(c.ratingSum, 0) <> (SELECT COALESCE(SUM(cm.rating), 0) FROM Comment cm"
+            + " WHERE cm.cafe.id = c.id)")
+    int reconcileRatingTotals();
+
+    @Modifying
+    @Query("UPDATE Cafe c SET c.rating = FLOOR(c.ratingSum / c.ratingCount)"
+            + " WHERE c.ratingCount > 0"
+            + " AND (c.rating IS NULL OR c.rating <> FLOOR(c.ratingSum / c.ratingCount))")
+    int reconcileRatings();
+
+    @Query("SELECT c.id FROM Cafe c")
+    List<Long> findAllIds();
+
+    @Query("SELECT c.id, o.name FROM Cafe c JOIN c.options o")
+    List<Object[]> findAllOptionLinks();
+
+    @Query("SELECT c.id, c.latitude, c.longitude FROM Cafe c"
+            + " WHERE c.latitude IS NOT NULL AND c.longitude IS NOT NULL")
+    List<Object[]> findAllLocations();
+
+    @Query("SELECT c.id, c.name, c.shortDescription, c.description FROM Cafe c")
+    List<Object[]> findAllTexts();
+
+    @Query("SELECT DISTINCT c FROM Cafe c LEFT JOIN FETCH c.options")
+    List<Cafe> findAllFetchOptions();
+
+    @Query("SELECT DISTINCT c FROM Cafe c LEFT JOIN FETCH c.imageLink")
+    List<Cafe> findAllFetchImageLinks();
+
+    @Query("SELECT DISTINCT c FROM Cafe c LEFT JOIN FETCH c.options WHERE c.id IN :ids")
+    List<Cafe> findAllFetchOptionsByIdIn(List<Long> ids);
+
+    @Query("SELECT DISTINCT c FROM Cafe c LEFT JOIN FETCH c.imageLink WHERE c.id IN :ids")
+    List<Cafe> findAllFetchImageLinksByIdIn(List<Long> ids);
 }
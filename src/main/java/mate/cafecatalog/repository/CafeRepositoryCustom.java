@@ -0,0 +1,16 @@
+package mate.cafecatalog.repository;
+
+import java.util.List;
+import mate.cafecatalog.model.Cafe;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface CafeRepositoryCustom {
+    List<Cafe> findTop(Specification<Cafe> specification, Sort sort, int limit);
+
+    List<Long> findIds(Specification<Cafe> specification, Sort sort);
+
+    List<Cafe> findFavourites(Long userId, Sort sort, List<Object> after, long offset, int limit);
+
+    long countFavourites(Long userId);
+}
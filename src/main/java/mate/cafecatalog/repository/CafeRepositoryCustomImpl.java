@@ -0,0 +1,90 @@
+package mate.cafecatalog.repository;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.specification.KeysetSpecification;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+public class CafeRepositoryCustomImpl implements CafeRepositoryCustom {
+    private static final String CAFE_ID_NAME = "id";
+    private static final String USER_ID_NAME = "id";
+    private static final String FAVOURITES_NAME = "favourites";
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // unlike findAll(Specification, Pageable) this runs no count query
+    @Override
+    public List<Cafe> findTop(Specification<Cafe> specification, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Cafe> query = cb.createQuery(Cafe.class);
+        Root<Cafe> root = query.from(Cafe.class);
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.select(root).orderBy(QueryUtils.toOrders(sort, root, cb));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<Long> findIds(Specification<Cafe> specification, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Cafe> root = query.from(Cafe.class);
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.select(root.get(CAFE_ID_NAME)).orderBy(QueryUtils.toOrders(sort, root, cb));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // walks users_favourites of one user joined to cafes, so the cost follows the page size
+    // rather than the number of favourites; after is an optional keyset cursor
+    @Override
+    public List<Cafe> findFavourites(Long userId, Sort sort, List<Object> after, long offset,
+                                     int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Cafe> query = cb.createQuery(Cafe.class);
+        Root<User> user = query.from(User.class);
+        Join<User, Cafe> favourite = user.join(FAVOURITES_NAME);
+        Predicate predicate = cb.equal(user.get(USER_ID_NAME), userId);
+        if (after != null) {
+            predicate = cb.and(predicate, KeysetSpecification.after(favourite, cb, sort, after));
+        }
+        query.select(favourite)
+                .where(predicate)
+                .orderBy(QueryUtils.toOrders(sort, favourite, cb));
+        return entityManager.createQuery(query)
+                .setFirstResult((int) offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public long countFavourites(Long userId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<User> user = query.from(User.class);
+        Join<User, Cafe> favourite = user.join(FAVOURITES_NAME);
+        query.select(cb.count(favourite))
+                .where(cb.equal(user.get(USER_ID_NAME), userId));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
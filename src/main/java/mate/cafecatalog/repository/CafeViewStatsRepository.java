@@ -0,0 +1,16 @@
+package mate.cafecatalog.repository;
+
+import java.util.List;
+import mate.cafecatalog.dto.response.CafeViewsResponseDto;
+import mate.cafecatalog.model.CafeViewStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface CafeViewStatsRepository extends JpaRepository<CafeViewStats, Long> {
+    @Query("SELECT new mate.cafecatalog.dto.response.CafeViewsResponseDto(v.cafeId, c.name,"
+            + " v.views, v.uniqueVisitors)"
+            + " FROM CafeViewStats v, Cafe c WHERE c.id = v.cafeId"
+            + " ORDER BY v.views DESC, v.cafeId")
+    List<CafeViewsResponseDto> findMostViewed(Pageable pageable);
+}
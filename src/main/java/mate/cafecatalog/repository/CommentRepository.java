@@ -1,16 +1,50 @@
 package mate.cafecatalog.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import mate.cafecatalog.dto.response.CommentResponseDto;
 import mate.cafecatalog.model.Comment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findAllByCafeId(Long cafeId);
+    @Query("SELECT new mate.cafecatalog.dto.response.CommentResponseDto(c.id, c.text, c.rating,"
+            + " c.publicityDate, cafe.name, u.username)"
+            + " FROM Comment c JOIN c.cafe cafe JOIN c.user u"
+            + " WHERE c.id IN :ids")
+    List<CommentResponseDto> findResponsesByIdIn(Collection<Long> ids);
 
-    List<Comment> findAllByUserId(Long userId);
+    @Query("SELECT new mate.cafecatalog.dto.response.CommentResponseDto(c.id, c.text, c.rating,"
+            + " c.publicityDate, cafe.name, u.username)"
+            + " FROM Comment c JOIN c.cafe cafe JOIN c.user u"
+            + " WHERE cafe.id = :cafeId"
+            + " ORDER BY c.publicityDate DESC, c.id DESC")
+    List<CommentResponseDto> findLatestByCafeId(Long cafeId, Pageable pageable);
 
-    @Query("SELECT AVG(c.rating) FROM Comment c"
-            + " WHERE c.cafe.id = :cafeId")
-    Integer getAvgRatingByCafeId(Long cafeId);
+    @Query("SELECT new mate.cafecatalog.dto.response.CommentResponseDto(c.id, c.text, c.rating,"
+            + " c.publicityDate, cafe.name, u.username)"
+            + " FROM Comment c JOIN c.cafe cafe JOIN c.user u"
+            + " WHERE cafe.id = :cafeId AND (c.publicityDate < :publicityDate"
+            + " OR (c.publicityDate = :publicityDate AND c.id < :id))"
+            + " ORDER BY c.publicityDate DESC, c.id DESC")
+    List<CommentResponseDto> findLatestByCafeIdBefore(Long cafeId, LocalDateTime publicityDate,
+                                                      Long id, Pageable pageable);
+
+    @Query("SELECT new mate.cafecatalog.dto.response.CommentResponseDto(c.id, c.text, c.rating,"
+            + " c.publicityDate, cafe.name, u.username)"
+            + " FROM Comment c JOIN c.cafe cafe JOIN c.user u"
+            + " WHERE u.id = :userId"
+            + " ORDER BY c.publicityDate DESC, c.id DESC")
+    List<CommentResponseDto> findLatestByUserId(Long userId, Pageable pageable);
+
+    @Query("SELECT new mate.cafecatalog.dto.response.CommentResponseDto(c.id, c.text, c.rating,"
+            + " c.publicityDate, cafe.name, u.username)"
+            + " FROM Comment c JOIN c.cafe cafe JOIN c.user u"
+            + " WHERE u.id = :userId AND (c.publicityDate < :publicityDate"
+            + " OR (c.publicityDate = :publicityDate AND c.id < :id))"
+            + " ORDER BY c.publicityDate DESC, c.id DESC")
+    List<CommentResponseDto> findLatestByUserIdBefore(Long userId, LocalDateTime publicityDate,
+                                                      Long id, Pageable pageable);
 }
@@ -1,13 +1,29 @@
 package mate.cafecatalog.repository;
 
+import java.util.List;
 import java.util.Optional;
 import mate.cafecatalog.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     Optional<User> findByEmail(String email);
 
     Optional<User> findByUsername(String username);
 
     Optional<User> findByEmailOrUsername(String email, String username);
+
+    @Query("SELECT COALESCE(u.tokenGeneration, 0) FROM User u WHERE u.id = :userId")
+    Optional<Long> findTokenGenerationById(Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.tokenGeneration = COALESCE(u.tokenGeneration, 0) + 1"
+            + " WHERE u.id = :userId")
+    int incrementTokenGeneration(Long userId);
+
+    @Query("SELECT f.id FROM User u JOIN u.favourites f WHERE u.id = :userId ORDER BY f.id")
+    List<Long> findFavouriteIds(Long userId);
 }
@@ -0,0 +1,7 @@
+package mate.cafecatalog.repository;
+
+public interface UserRepositoryCustom {
+    int addFavourite(Long userId, Long cafeId);
+
+    int removeFavourite(Long userId, Long cafeId);
+}
@@ -0,0 +1,33 @@
+package mate.cafecatalog.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+// native statements on the join table, declared here because
+// Spring Data 2.7 fails deriving a count query from a native INSERT or DELETE
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // the unique key turns a concurrent duplicate into a no-op
+    @Override
+    @Transactional
+    public int addFavourite(Long userId, Long cafeId) {
+        return entityManager.createNativeQuery("INSERT IGNORE INTO users_favourites"
+                        + " (user_id, favourites_id) VALUES (:userId, :cafeId)")
+                .setParameter("userId", userId)
+                .setParameter("cafeId", cafeId)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int removeFavourite(Long userId, Long cafeId) {
+        return entityManager.createNativeQuery("DELETE FROM users_favourites"
+                        + " WHERE user_id = :userId AND favourites_id = :cafeId")
+                .setParameter("userId", userId)
+                .setParameter("cafeId", cafeId)
+                .executeUpdate();
+    }
+}
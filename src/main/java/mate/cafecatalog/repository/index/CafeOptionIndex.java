@@ -0,0 +1,107 @@
+package mate.cafecatalog.repository.index;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import mate.cafecatalog.repository.CafeRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// One bitmap of cafe ids per option name, cafe ids are dense auto increment values
+@Component
+public class CafeOptionIndex {
+    private static final String OPTION_SPLIT_REGEX = ":";
+    private static final String OPTION_EXCLUDE_VALUE = "no";
+    private static final int CAFE_ID_INDEX = 0;
+    private static final int OPTION_NAME_INDEX = 1;
+    private final CafeRepository cafeRepository;
+    private volatile State state;
+
+    public CafeOptionIndex(CafeRepository cafeRepository) {
+        this.cafeRepository = cafeRepository;
+    }
+
+    // tokens are option names, "name:no" excludes cafes having the option
+    public BitSet resolve(String[] options) {
+        State current = getState();
+        BitSet result = (BitSet) current.allCafes.clone();
+        for (String value : options) {
+            boolean include = true;
+            if (value.contains(OPTION_SPLIT_REGEX)) {
+                String[] optionInclude = value.split(OPTION_SPLIT_REGEX);
+                if (optionInclude[1].equals(OPTION_EXCLUDE_VALUE)) {
+                    include = false;
+                }
+                value = optionInclude[0];
+            }
+            BitSet cafes = current.cafesByOption.get(value);
+            if (include) {
+                if (cafes == null) {
+                    result.clear();
+                } else {
+                    result.and(cafes);
+                }
+            } else if (cafes != null) {
+                result.andNot(cafes);
+            }
+        }
+        return result;
+    }
+
+    public int cafeCount() {
+        return getState().allCafes.cardinality();
+    }
+
+    @Scheduled(fixedDelayString = "${cafe.option-index.refresh-interval:300000}")
+    public synchronized void refresh() {
+        state = read();
+    }
+
+    // the next lookup rebuilds the index, waits for a running refresh so it can't
+    // put back state read before the change
+    public synchronized void invalidate() {
+        state = null;
+    }
+
+    private State getState() {
+        State current = state;
+        return current == null ? load() : current;
+    }
+
+    // returns the state it built, an invalidate right after can't hand back null
+    private synchronized State load() {
+        State current = state;
+        if (current == null) {
+            current = read();
+            state = current;
+        }
+        return current;
+    }
+
+    private State read() {
+        BitSet allCafes = new BitSet();
+        for (Long cafeId : cafeRepository.findAllIds()) {
+            allCafes.set(toIndex(cafeId));
+        }
+        Map<String, BitSet> cafesByOption = new HashMap<>();
+        for (Object[] link : cafeRepository.findAllOptionLinks()) {
+            cafesByOption.computeIfAbsent((String) link[OPTION_NAME_INDEX], name -> new BitSet())
+                    .set(toIndex((Long) link[CAFE_ID_INDEX]));
+        }
+        return new State(allCafes, cafesByOption);
+    }
+
+    private static int toIndex(Long cafeId) {
+        return Math.toIntExact(cafeId);
+    }
+
+    private static class State {
+        private final BitSet allCafes;
+        private final Map<String, BitSet> cafesByOption;
+
+        private State(BitSet allCafes, Map<String, BitSet> cafesByOption) {
+            this.allCafes = allCafes;
+            this.cafesByOption = cafesByOption;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import mate.cafecatalog.exception.DataProcessingException;
 import mate.cafecatalog.model.Cafe;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.jpa.domain.Specification;
@@ -23,7 +24,7 @@ public class CafeSpecificationManager implements SpecificationManager<Cafe> {
     @Override
     public Specification<Cafe> get(String filterKey, String[] params) {
         if (!providersMap.containsKey(filterKey)) {
-            throw new RuntimeException("Key " + filterKey
+            throw new DataProcessingException("Key " + filterKey
                     + " is not supported for data filtering");
         }
         return providersMap.get(filterKey).getSpecification(params);
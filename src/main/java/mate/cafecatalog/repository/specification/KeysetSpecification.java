@@ -0,0 +1,69 @@
+package mate.cafecatalog.repository.specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import mate.cafecatalog.exception.DataProcessingException;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+// Seek predicate "row comes after the cursor row" for the given orders, nulls are
+// treated as the smallest values like MySQL does
+public final class KeysetSpecification {
+    private KeysetSpecification() {
+    }
+
+    public static <T> Specification<T> after(Sort sort, List<Object> cursor) {
+        return (root, query, cb) -> after(root, cb, sort, cursor);
+    }
+
+    public static Predicate after(Path<?> root, CriteriaBuilder cb, Sort sort,
+                                  List<Object> cursor) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.size() != cursor.size()) {
+            throw new DataProcessingException("Cursor doesn't match sorting " + sort);
+        }
+        List<Predicate> alternatives = new ArrayList<>();
+        List<Predicate> equalPrefix = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Sort.Order order = orders.get(i);
+            Path<Comparable<Object>> path = root.get(order.getProperty());
+            Comparable<Object> value = convert(cursor.get(i), path);
+            List<Predicate> alternative = new ArrayList<>(equalPrefix);
+            alternative.add(order.isAscending()
+                    ? greaterThan(cb, path, value)
+                    : lessThan(cb, path, value));
+            alternatives.add(cb.and(alternative.toArray(Predicate[]::new)));
+            equalPrefix.add(value == null ? cb.isNull(path) : cb.equal(path, value));
+        }
+        return cb.or(alternatives.toArray(Predicate[]::new));
+    }
+
+    private static Predicate greaterThan(CriteriaBuilder cb, Expression<Comparable<Object>> path,
+                                         Comparable<Object> value) {
+        return value == null ? cb.isNotNull(path) : cb.greaterThan(path, value);
+    }
+
+    private static Predicate lessThan(CriteriaBuilder cb, Expression<Comparable<Object>> path,
+                                      Comparable<Object> value) {
+        return value == null ? cb.disjunction() : cb.or(cb.lessThan(path, value), cb.isNull(path));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> convert(Object value, Path<?> path) {
+        if (value == null) {
+            return null;
+        }
+        Class<?> javaType = path.getJavaType();
+        if (javaType == LocalDateTime.class) {
+            return (Comparable<Object>) (Comparable<?>) LocalDateTime.parse(value.toString());
+        }
+        return (Comparable<Object>) DefaultConversionService.getSharedInstance()
+                .convert(value, javaType);
+    }
+}
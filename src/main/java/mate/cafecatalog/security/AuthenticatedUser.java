@@ -0,0 +1,24 @@
+package mate.cafecatalog.security;
+
+import java.util.Collection;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+// Principal resolved once per request by the jwt filter, carries the user id so controllers
+// take it with @AuthenticationPrincipal instead of looking the user up by email
+@Getter
+public class AuthenticatedUser extends User {
+    private final Long id;
+
+    public AuthenticatedUser(Long id, String email,
+                             Collection<? extends GrantedAuthority> authorities) {
+        this(id, email, "", authorities);
+    }
+
+    public AuthenticatedUser(Long id, String email, String password,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(email, password, authorities);
+        this.id = id;
+    }
+}
@@ -1,10 +1,10 @@
 package mate.cafecatalog.security;
 
-import mate.cafecatalog.exception.AuthenticationException;
+import java.util.concurrent.CompletableFuture;
 import mate.cafecatalog.model.User;
 
 public interface AuthenticationService {
-    User register(String email, String password, String username);
+    CompletableFuture<User> register(String email, String password, String username);
 
-    User login(String login, String password) throws AuthenticationException;
+    CompletableFuture<User> login(String login, String password);
 }
@@ -2,30 +2,35 @@ package mate.cafecatalog.security;
 
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import mate.cafecatalog.exception.AuthenticationException;
 import mate.cafecatalog.exception.DataProcessingException;
 import mate.cafecatalog.model.User;
 import mate.cafecatalog.service.RoleService;
 import mate.cafecatalog.service.UserService;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AuthenticationServiceImpl implements AuthenticationService {
     private final UserService userService;
     private final RoleService roleService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final Executor applicationTaskExecutor;
 
     public AuthenticationServiceImpl(UserService userService,
                                      RoleService roleService,
-                                     PasswordEncoder passwordEncoder) {
+                                     PasswordHasher passwordHasher,
+                                     Executor applicationTaskExecutor) {
         this.userService = userService;
         this.roleService = roleService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
+        this.applicationTaskExecutor = applicationTaskExecutor;
     }
 
+    // the user is stored back on the application task executor, hashing threads only hash
     @Override
-    public User register(String email, String password, String username) {
+    public CompletableFuture<User> register(String email, String password, String username) {
         if (userService.findByEmail(email).isPresent()) {
             throw new DataProcessingException("Email " + email + " already used.");
         }
@@ -34,20 +39,25 @@ public class AuthenticationServiceImpl implements AuthenticationService {
         }
         User user = new User();
         user.setEmail(email);
-        user.setPassword(password);
         user.setUsername(username);
         user.setRoles(Set.of(roleService.getRoleByName("USER")));
-        user = userService.save(user);
-        return user;
+        return passwordHasher.encode(password).thenApplyAsync(encodedPassword -> {
+            user.setPassword(encodedPassword);
+            return userService.save(user);
+        }, applicationTaskExecutor);
     }
 
     @Override
-    public User login(String login, String password) throws AuthenticationException {
+    public CompletableFuture<User> login(String login, String password) {
         Optional<User> user = userService.findByEmailOrUsername(login, login);
-        if (user.isEmpty() || ! passwordEncoder.matches(password, user.get().getPassword())) {
+        if (user.isEmpty()) {
             throw new AuthenticationException("Incorrect username or password!!!");
         }
-
-        return user.get();
+        return passwordHasher.matches(password, user.get().getPassword()).thenApply(matches -> {
+            if (! matches) {
+                throw new AuthenticationException("Incorrect username or password!!!");
+            }
+            return user.get();
+        });
     }
 }
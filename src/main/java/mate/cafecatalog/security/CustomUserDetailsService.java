@@ -1,10 +1,11 @@
 package mate.cafecatalog.security;
 
 import java.util.Optional;
+import java.util.stream.Collectors;
 import mate.cafecatalog.exception.DataProcessingException;
 import mate.cafecatalog.model.User;
 import mate.cafecatalog.service.UserService;
-import org.springframework.security.core.userdetails.User.UserBuilder;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Service;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
+    private static final String ROLE_PREFIX = "ROLE_";
     private final UserService userService;
 
     public CustomUserDetailsService(UserService userService) {
@@ -22,15 +24,14 @@ public class CustomUserDetailsService implements UserDetailsService {
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         Optional<User> userOptional = userService.findByEmail(email);
 
-        UserBuilder builder;
         if (userOptional.isPresent()) {
-            builder = org.springframework.security.core.userdetails.User.withUsername(email);
-            builder.password(userOptional.get().getPassword());
-            builder.roles(userOptional.get().getRoles()
-                    .stream()
-                    .map(r -> r.getRoleName().name())
-                    .toArray(String[]::new));
-            return builder.build();
+            return new AuthenticatedUser(userOptional.get().getId(), email,
+                    userOptional.get().getPassword(),
+                    userOptional.get().getRoles()
+                            .stream()
+                            .map(r -> new SimpleGrantedAuthority(ROLE_PREFIX
+                                    + r.getRoleName().name()))
+                            .collect(Collectors.toList()));
         }
         throw new DataProcessingException("User with email " + email + " not found");
     }
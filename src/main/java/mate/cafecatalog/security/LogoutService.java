@@ -3,9 +3,9 @@ package mate.cafecatalog.security;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import mate.cafecatalog.exception.InvalidJwtAuthenticationException;
 import mate.cafecatalog.security.jwt.JwtTokenProvider;
-import mate.cafecatalog.security.token.Token;
-import mate.cafecatalog.security.token.TokenService;
+import mate.cafecatalog.security.token.TokenRevocation;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.web.authentication.logout.LogoutHandler;
 import org.springframework.stereotype.Service;
@@ -14,18 +14,20 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class LogoutService implements LogoutHandler {
     private final JwtTokenProvider jwtTokenProvider;
-    private final TokenService tokenService;
+    private final TokenRevocation tokenRevocation;
 
     @Override
     public void logout(HttpServletRequest request,
                        HttpServletResponse response,
                        Authentication authentication) {
         String token = jwtTokenProvider.resolveToken(request);
-        Token storedToken = tokenService.findByToken(token).orElse(null);
-        if (storedToken != null) {
-            storedToken.setExpired(true);
-            storedToken.setRevoked(true);
-            tokenService.save(storedToken);
+        if (token == null) {
+            return;
+        }
+        try {
+            tokenRevocation.endSession(token, jwtTokenProvider.getUserId(token));
+        } catch (InvalidJwtAuthenticationException e) {
+            // an expired or forged token can't be used anyway
         }
     }
 }
@@ -0,0 +1,79 @@
+package mate.cafecatalog.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import mate.cafecatalog.exception.ServiceOverloadedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+// Runs BCrypt off the request threads on a pool sized to the cores with a bounded queue,
+// a full queue is rejected at once instead of letting logins pile up.
+// The pool is deliberately not an Executor bean so it can't replace the application task executor
+@Component
+public class PasswordHasher {
+    private static final String HASH_TIMER = "password.hashing";
+    private static final String QUEUE_WAIT_TIMER = "password.hashing.queue.wait";
+    private static final String QUEUE_SIZE_GAUGE = "password.hashing.queue.size";
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueWaitTimer;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+                          @Value("${security.password-hashing.threads:0}") int threads,
+                          @Value("${security.password-hashing.queue-capacity:64}")
+                          int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, queue,
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        encodeTimer = meterRegistry.timer(HASH_TIMER, "operation", "encode");
+        matchesTimer = meterRegistry.timer(HASH_TIMER, "operation", "matches");
+        queueWaitTimer = meterRegistry.timer(QUEUE_WAIT_TIMER);
+        meterRegistry.gauge(QUEUE_SIZE_GAUGE, queue, BlockingQueue::size);
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Timer timer, Supplier<T> hashing) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return timer.record(hashing);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceOverloadedException("Too many sign-in requests, try again later");
+        }
+    }
+}
@@ -2,76 +2,125 @@ package mate.cafecatalog.security.jwt;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import java.util.Base64;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
 import javax.servlet.http.HttpServletRequest;
 import mate.cafecatalog.exception.InvalidJwtAuthenticationException;
-import mate.cafecatalog.security.token.TokenService;
+import mate.cafecatalog.security.AuthenticatedUser;
+import mate.cafecatalog.security.token.TokenRevocation;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 
 @Component
 public class JwtTokenProvider {
+    private static final String ROLES_CLAIM = "roles";
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String GENERATION_CLAIM = "gen";
+    private static final String TYPE_CLAIM = "typ";
+    private static final String ACCESS_TYPE = "access";
+    private static final String REFRESH_TYPE = "refresh";
+    private static final String ROLE_PREFIX = "ROLE_";
     @Value("${security.jwt.token.secret-key}")
     private String secretKey;
     @Value("${security.jwt.token.expire-length}")
     private long jwtExpiration;
     @Value("${security.jwt.refresh-token.expire-length}")
     private long refreshExpiration;
+    @Value("${security.jwt.auth-mode:CLAIMS}")
+    private AuthMode authMode;
+    private Key signingKey;
+    private JwtParser jwtParser;
 
     private final UserDetailsService userDetailsService;
 
-    private final TokenService tokenService;
+    private final TokenRevocation tokenRevocation;
 
     public JwtTokenProvider(UserDetailsService userDetailsService,
-                            TokenService tokenService) {
+                            TokenRevocation tokenRevocation) {
         this.userDetailsService = userDetailsService;
-        this.tokenService = tokenService;
+        this.tokenRevocation = tokenRevocation;
     }
 
     @PostConstruct
     protected void init() {
-        secretKey = Base64.getEncoder().encodeToString(secretKey.getBytes());
+        signingKey = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8),
+                SignatureAlgorithm.HS256.getJcaName());
+        jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
     }
 
-    public String createToken(String login, List<String> roles, boolean isRefreshToken) {
+    // generation is embedded into access tokens when the revocation mode hands one out
+    public String createToken(Long userId, String login, List<String> roles, Long generation,
+                              boolean isRefreshToken) {
+        Claims claims = Jwts.claims().setSubject(login);
+        claims.put(ROLES_CLAIM, roles);
+        claims.put(USER_ID_CLAIM, userId);
         if (isRefreshToken) {
-            return buildToken(login, roles, refreshExpiration);
+            claims.put(TYPE_CLAIM, REFRESH_TYPE);
+            return buildToken(claims, refreshExpiration);
+        }
+        claims.put(TYPE_CLAIM, ACCESS_TYPE);
+        if (generation != null) {
+            claims.put(GENERATION_CLAIM, generation);
         }
-        return buildToken(login, roles, jwtExpiration);
+        return buildToken(claims, jwtExpiration);
     }
 
-    private String buildToken(String login, List<String> roles, long expiration) {
-        Claims claims = Jwts.claims().setSubject(login);
-        claims.put("roles", roles);
+    private String buildToken(Claims claims, long expiration) {
         Date now = new Date();
         Date validity = new Date(now.getTime() + expiration);
         return Jwts.builder()
                 .setClaims(claims)
                 .setIssuedAt(now)
                 .setExpiration(validity)
-                .signWith(SignatureAlgorithm.HS256, secretKey)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public Authentication getAuthentication(String token) {
-        UserDetails userDetails = this.userDetailsService.loadUserByUsername(getUsername(token));
+    // verifies the token once and builds the authentication of its user,
+    // null when the token is not a stored valid one
+    public Authentication authenticate(String token) {
+        Claims claims = parseClaims(token, "JWT token");
+        if (claims.getExpiration().before(new Date())
+                || REFRESH_TYPE.equals(claims.get(TYPE_CLAIM))
+                || !tokenRevocation.isValid(token, getLong(claims, USER_ID_CLAIM),
+                        getLong(claims, GENERATION_CLAIM), claims.getExpiration())) {
+            return null;
+        }
+        UserDetails userDetails = authMode == AuthMode.CLAIMS
+                && claims.containsKey(USER_ID_CLAIM) && claims.containsKey(ROLES_CLAIM)
+                ? getUser(claims)
+                : userDetailsService.loadUserByUsername(claims.getSubject());
         return new UsernamePasswordAuthenticationToken(userDetails, "",
                 userDetails.getAuthorities());
     }
 
     public String getUsername(String token) {
-        return Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token).getBody().getSubject();
+        return jwtParser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    public Long getUserId(String token) {
+        return getLong(parseClaims(token, "JWT token"), USER_ID_CLAIM);
+    }
+
+    public LocalDateTime getExpiration(String token) {
+        return LocalDateTime.ofInstant(jwtParser.parseClaimsJws(token).getBody()
+                .getExpiration().toInstant(), ZoneId.systemDefault());
     }
 
     public String resolveToken(HttpServletRequest request) {
@@ -82,32 +131,41 @@ public class JwtTokenProvider {
         return null; // throw new RuntimeException("Can't resolve token");
     }
 
-    public boolean validateToken(String token) {
-        try {
-            Jws<Claims> claims = Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token);
-            boolean isValidToken = tokenService.findByToken(token)
-                    .map(t -> ! t.isExpired() && ! t.isRevoked())
-                    .orElse(false);
-
-            return ! claims.getBody().getExpiration().before(new Date()) &&
-                    isValidToken;
-        } catch (ExpiredJwtException e) {
-            throw new InvalidJwtAuthenticationException("Expired JWT token", e);
-        }
-        catch (JwtException | IllegalArgumentException e) {
-            throw new InvalidJwtAuthenticationException("Invalid JWT token", e);
-        }
+    public boolean validateRefreshToken(String token) {
+        Claims claims = parseClaims(token, "JWT refresh token");
+        return ! claims.getExpiration().before(new Date())
+                && ! ACCESS_TYPE.equals(claims.get(TYPE_CLAIM));
     }
 
-    public boolean validateRefreshToken(String token) {
+    private Claims parseClaims(String token, String tokenType) {
         try {
-            Jws<Claims> claims = Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token);
-            return ! claims.getBody().getExpiration().before(new Date());
+            return jwtParser.parseClaimsJws(token).getBody();
         } catch (ExpiredJwtException e) {
-            throw new InvalidJwtAuthenticationException("Expired JWT refresh token", e);
+            throw new InvalidJwtAuthenticationException("Expired " + tokenType, e);
         }
         catch (JwtException | IllegalArgumentException e) {
-            throw new InvalidJwtAuthenticationException("Invalid JWT refresh token", e);
+            throw new InvalidJwtAuthenticationException("Invalid " + tokenType, e);
         }
     }
+
+    private Long getLong(Claims claims, String name) {
+        Object value = claims.get(name);
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    private UserDetails getUser(Claims claims) {
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        return new AuthenticatedUser(getLong(claims, USER_ID_CLAIM),
+                claims.getSubject(),
+                roles.stream()
+                        .map(role -> new SimpleGrantedAuthority(ROLE_PREFIX + role))
+                        .collect(Collectors.toList()));
+    }
+
+    public enum AuthMode {
+        // principal comes from the token claims
+        CLAIMS,
+        // principal is reloaded from the database on every request
+        DATABASE
+    }
 }
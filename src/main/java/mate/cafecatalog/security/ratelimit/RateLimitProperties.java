@@ -0,0 +1,35 @@
+package mate.cafecatalog.security.ratelimit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "security.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    private List<Rule> rules = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Rule {
+        private String method = "POST";
+        private String path;
+        private KeyType per = KeyType.IP;
+        private int capacity;
+        private Duration refillPeriod;
+    }
+
+    public enum KeyType {
+        // remote address of the request
+        IP,
+        // name of the authenticated user, remote address for anonymous requests
+        USER
+    }
+}
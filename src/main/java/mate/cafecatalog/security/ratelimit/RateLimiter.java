@@ -0,0 +1,114 @@
+package mate.cafecatalog.security.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import javax.servlet.http.HttpServletRequest;
+import mate.cafecatalog.security.ratelimit.RateLimitProperties.KeyType;
+import mate.cafecatalog.security.ratelimit.RateLimitProperties.Rule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+// Buckets live in one concurrent map per rule keyed by client,
+// requests to paths without a rule cost a single hash lookup
+@Component
+public class RateLimiter {
+    private final Map<String, List<Limit>> limitsByPath;
+    private final LongSupplier clock;
+    private final Counter rejected;
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry,
+                LongSupplier clock) {
+        this.clock = clock;
+        rejected = meterRegistry.counter("rate.limit.rejected");
+        Map<String, List<Limit>> limits = new HashMap<>();
+        if (properties.isEnabled()) {
+            for (Rule rule : properties.getRules()) {
+                limits.computeIfAbsent(rule.getPath(), path -> new ArrayList<>())
+                        .add(new Limit(rule));
+            }
+        }
+        limitsByPath = limits;
+    }
+
+    // returns 0 when the request may pass, otherwise nanos until it would be allowed
+    public long tryAcquire(HttpServletRequest request) {
+        List<Limit> limits = limitsByPath.getOrDefault(normalize(request.getServletPath()),
+                Collections.emptyList());
+        long wait = 0;
+        for (Limit limit : limits) {
+            if (limit.method.equalsIgnoreCase(request.getMethod())) {
+                wait = Math.max(wait, limit.tryAcquire(getKey(limit.per, request)));
+            }
+        }
+        if (wait > 0) {
+            rejected.increment();
+        }
+        return wait;
+    }
+
+    // a bucket removed while in use just loses its last token, which only favours the client
+    @Scheduled(fixedDelayString = "${security.rate-limit.sweep-interval:60000}")
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        limitsByPath.values().forEach(limits -> limits.forEach(limit ->
+                limit.buckets.values().removeIf(bucket -> bucket.isFull(now))));
+    }
+
+    // Spring MVC still maps "/path/" to the handler of "/path", so it shares the limit
+    private static String normalize(String path) {
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(0, end);
+    }
+
+    private String getKey(KeyType per, HttpServletRequest request) {
+        if (per == KeyType.USER) {
+            Authentication authentication = SecurityContextHolder.getContext()
+                    .getAuthentication();
+            if (authentication != null && authentication.isAuthenticated()
+                    && !(authentication instanceof AnonymousAuthenticationToken)) {
+                return authentication.getName();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private class Limit {
+        private final String method;
+        private final KeyType per;
+        private final long interval;
+        private final long tolerance;
+        private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+        Limit(Rule rule) {
+            method = rule.getMethod();
+            per = rule.getPer();
+            interval = rule.getRefillPeriod().toNanos() / rule.getCapacity();
+            tolerance = interval * (rule.getCapacity() - 1);
+        }
+
+        long tryAcquire(String key) {
+            long now = clock.getAsLong();
+            return buckets.computeIfAbsent(key, k -> new TokenBucket(now))
+                    .tryAcquire(now, interval, tolerance);
+        }
+    }
+}
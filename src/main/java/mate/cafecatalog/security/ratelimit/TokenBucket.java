@@ -0,0 +1,33 @@
+package mate.cafecatalog.security.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket kept as a single "theoretical arrival time" (GCRA),
+// so taking a token is one CAS without locks or allocation
+class TokenBucket {
+    private final AtomicLong arrivalTime;
+
+    TokenBucket(long now) {
+        arrivalTime = new AtomicLong(now);
+    }
+
+    // returns 0 when a token was taken, otherwise nanos until the next token
+    long tryAcquire(long now, long interval, long tolerance) {
+        while (true) {
+            long current = arrivalTime.get();
+            long start = Math.max(current, now);
+            long debt = start - now;
+            if (debt > tolerance) {
+                return debt - tolerance;
+            }
+            if (arrivalTime.compareAndSet(current, start + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    // a full bucket holds no state worth keeping
+    boolean isFull(long now) {
+        return arrivalTime.get() <= now;
+    }
+}
@@ -0,0 +1,43 @@
+package mate.cafecatalog.security.token;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Deletes tokens past their JWT expiry, including revoked ones, in short transactions
+// so the purge never holds locks on a large part of the table.
+// Rows stored before expiresAt existed can't match any hash and go as well
+@Component
+public class ExpiredTokenPurger {
+    private static final Logger logger = LoggerFactory.getLogger(ExpiredTokenPurger.class);
+    private final TokenRepository tokenRepository;
+    private final int batchSize;
+
+    public ExpiredTokenPurger(TokenRepository tokenRepository,
+                              @Value("${security.token.purge.batch-size:1000}") int batchSize) {
+        this.tokenRepository = tokenRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${security.token.purge.interval:3600000}")
+    public int purge() {
+        LocalDateTime now = LocalDateTime.now();
+        int purged = 0;
+        List<Long> ids;
+        do {
+            ids = tokenRepository.findExpiredIds(now, PageRequest.of(0, batchSize));
+            if (!ids.isEmpty()) {
+                purged += tokenRepository.deleteAllByIdIn(ids);
+            }
+        } while (ids.size() == batchSize);
+        if (purged > 0) {
+            logger.info("Purged {} expired tokens", purged);
+        }
+        return purged;
+    }
+}
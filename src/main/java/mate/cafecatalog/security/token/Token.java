@@ -1,11 +1,15 @@
 package mate.cafecatalog.security.token;
 
+import java.time.LocalDateTime;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,11 +21,16 @@ import mate.cafecatalog.model.User;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(name = "token", indexes = {
+        @Index(name = "idx_token_user_state", columnList = "user_id, revoked, expired"),
+        @Index(name = "idx_token_expires_at", columnList = "expiresAt")})
 public class Token {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
-    private String token;
+    @Column(unique = true, length = TokenDigest.LENGTH)
+    private String tokenHash;
+    private LocalDateTime expiresAt;
     private boolean expired;
     private boolean revoked;
     @ManyToOne
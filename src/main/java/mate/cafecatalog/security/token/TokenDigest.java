@@ -0,0 +1,29 @@
+package mate.cafecatalog.security.token;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// Tokens are stored and cached only as the hex SHA-256 of the JWT
+public final class TokenDigest {
+    public static final int LENGTH = 64;
+    private static final String ALGORITHM = "SHA-256";
+
+    private TokenDigest() {
+    }
+
+    public static String of(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance(ALGORITHM)
+                    .digest(token.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(LENGTH);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Can't hash token with " + ALGORITHM, e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package mate.cafecatalog.security.token;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Date;
+import mate.cafecatalog.exception.DataProcessingException;
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Each user has a token generation, an access token is valid only while it carries the current one.
+// Logout and login bump the generation and so revoke every older token at once.
+// Generations are read lazily and reloaded in the background after refresh-after-write,
+// which bounds how long a bump made by another instance stays unseen
+@Component
+@ConditionalOnProperty(name = "security.jwt.revocation", havingValue = "GENERATION")
+public class TokenGenerationRevocation implements TokenRevocation {
+    private static final String CACHE_NAME = "tokenGenerations";
+    private final UserRepository userRepository;
+    private final LoadingCache<Long, Long> generations;
+
+    public TokenGenerationRevocation(UserRepository userRepository, MeterRegistry meterRegistry,
+                                     @Value("${security.jwt.generation-cache.maximum-size:100000}")
+                                     long maximumSize,
+                                     @Value("${security.jwt.generation-cache.refresh-after-write:1m}")
+                                     Duration refreshAfterWrite) {
+        this.userRepository = userRepository;
+        generations = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(refreshAfterWrite)
+                .recordStats()
+                .build(userId -> userRepository.findTokenGenerationById(userId).orElse(null));
+        CaffeineCacheMetrics.monitor(meterRegistry, generations, CACHE_NAME);
+    }
+
+    @Override
+    public Long startSession(User user) {
+        return nextGeneration(user.getId());
+    }
+
+    @Override
+    public void registerSession(User user, String token, LocalDateTime expiresAt) {
+    }
+
+    @Override
+    public boolean isValid(String token, Long userId, Long generation, Date expiration) {
+        return userId != null && generation != null
+                && generation.equals(generations.get(userId));
+    }
+
+    @Override
+    public void endSession(String token, Long userId) {
+        nextGeneration(userId);
+    }
+
+    private Long nextGeneration(Long userId) {
+        if (userRepository.incrementTokenGeneration(userId) == 0) {
+            throw new DataProcessingException("User with id " + userId + " not found");
+        }
+        Long generation = userRepository.findTokenGenerationById(userId).orElseThrow();
+        // generations only grow, a slower concurrent bump must not put an older one back
+        return generations.asMap().merge(userId, generation, Math::max);
+    }
+}
@@ -1,14 +1,36 @@
 package mate.cafecatalog.security.token;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface TokenRepository extends JpaRepository<Token, Long> {
-    @Query("SELECT t from Token t INNER JOIN User u ON t.user.id = u.id"
-            + " WHERE u.id = :userId AND (t.expired = false OR t.revoked = false)")
+    // expired and revoked are always set together
+    @Query("SELECT t FROM Token t"
+            + " WHERE t.user.id = :userId AND t.revoked = false AND t.expired = false")
     List<Token> findAllValidTokensByUserId(Long userId);
 
-    Optional<Token> findByToken(String token);
+    @Query("SELECT t.tokenHash FROM Token t WHERE t.user.id = :userId AND t.revoked = false")
+    List<String> findValidTokenHashesByUserId(Long userId);
+
+    @Modifying
+    @Query("UPDATE Token t SET t.revoked = true, t.expired = true"
+            + " WHERE t.user.id = :userId AND t.revoked = false")
+    int revokeAllByUserId(Long userId);
+
+    Optional<Token> findByTokenHash(String tokenHash);
+
+    @Query("SELECT t.id FROM Token t WHERE t.expiresAt < :now OR t.expiresAt IS NULL"
+            + " ORDER BY t.id")
+    List<Long> findExpiredIds(LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Token t WHERE t.id IN :ids")
+    int deleteAllByIdIn(List<Long> ids);
 }
@@ -0,0 +1,20 @@
+package mate.cafecatalog.security.token;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import mate.cafecatalog.model.User;
+
+// How issued access tokens get revoked, chosen with security.jwt.revocation
+public interface TokenRevocation {
+
+    // revokes earlier sessions of the user if this mode does it before issuing,
+    // returns the generation claim for the new access token or null
+    Long startSession(User user);
+
+    // called with the new access token once it is built
+    void registerSession(User user, String token, LocalDateTime expiresAt);
+
+    boolean isValid(String token, Long userId, Long generation, Date expiration);
+
+    void endSession(String token, Long userId);
+}
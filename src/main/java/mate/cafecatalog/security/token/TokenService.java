@@ -1,15 +1,17 @@
 package mate.cafecatalog.security.token;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Date;
 import java.util.Optional;
+import mate.cafecatalog.model.User;
 
 public interface TokenService {
 
     Token save(Token token);
 
-    List<Token> findAllValidTokensByUser(Long id);
-
     Optional<Token> findByToken(String token);
 
-    void saveAll(List<Token> validTokens);
+    boolean isValid(String token, Date expiration);
+
+    Token replaceUserTokens(User user, String token, LocalDateTime expiresAt);
 }
@@ -1,34 +1,62 @@
 package mate.cafecatalog.security.token;
 
+import java.time.LocalDateTime;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.util.TransactionCallbacks;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 @Component
 public class TokenServiceImpl implements TokenService {
     private final TokenRepository tokenRepository;
+    private final TokenValidityCache tokenValidityCache;
 
-    public TokenServiceImpl(TokenRepository tokenRepository) {
+    public TokenServiceImpl(TokenRepository tokenRepository,
+                            TokenValidityCache tokenValidityCache) {
         this.tokenRepository = tokenRepository;
+        this.tokenValidityCache = tokenValidityCache;
     }
 
     @Override
     public Token save(Token token) {
-        return tokenRepository.save(token);
+        Token saved = tokenRepository.save(token);
+        tokenValidityCache.evict(saved.getTokenHash());
+        return saved;
     }
 
     @Override
-    public List<Token> findAllValidTokensByUser(Long id) {
-        return tokenRepository.findAllValidTokensByUserId(id);
+    public Optional<Token> findByToken(String token) {
+        return tokenRepository.findByTokenHash(TokenDigest.of(token));
     }
 
     @Override
-    public Optional<Token> findByToken(String token) {
-        return tokenRepository.findByToken(token);
+    public boolean isValid(String token, Date expiration) {
+        String tokenHash = TokenDigest.of(token);
+        return tokenValidityCache.isValid(tokenHash, expiration,
+                () -> tokenRepository.findByTokenHash(tokenHash)
+                        .map(t -> ! t.isExpired() && ! t.isRevoked())
+                        .orElse(false));
     }
 
+    // revokes every session of the user and stores the new one in a constant number of statements
     @Override
-    public void saveAll(List<Token> validTokens) {
-        tokenRepository.saveAll(validTokens);
+    @Transactional
+    public Token replaceUserTokens(User user, String token, LocalDateTime expiresAt) {
+        List<String> revokedHashes = tokenRepository.findValidTokenHashesByUserId(user.getId());
+        if (!revokedHashes.isEmpty()) {
+            tokenRepository.revokeAllByUserId(user.getId());
+        }
+        Token saved = tokenRepository.save(Token.builder()
+                .user(user)
+                .tokenHash(TokenDigest.of(token))
+                .expiresAt(expiresAt)
+                .expired(false)
+                .revoked(false)
+                .build());
+        TransactionCallbacks.afterCommit(() -> revokedHashes.forEach(tokenValidityCache::evict));
+        return saved;
     }
 }
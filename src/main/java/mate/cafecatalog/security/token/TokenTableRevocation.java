@@ -0,0 +1,43 @@
+package mate.cafecatalog.security.token;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import mate.cafecatalog.model.User;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Every access token has a row, revocation flips the rows of the user
+@Component
+@ConditionalOnProperty(name = "security.jwt.revocation", havingValue = "TOKEN_TABLE",
+        matchIfMissing = true)
+public class TokenTableRevocation implements TokenRevocation {
+    private final TokenService tokenService;
+
+    public TokenTableRevocation(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    public Long startSession(User user) {
+        return null;
+    }
+
+    @Override
+    public void registerSession(User user, String token, LocalDateTime expiresAt) {
+        tokenService.replaceUserTokens(user, token, expiresAt);
+    }
+
+    @Override
+    public boolean isValid(String token, Long userId, Long generation, Date expiration) {
+        return tokenService.isValid(token, expiration);
+    }
+
+    @Override
+    public void endSession(String token, Long userId) {
+        tokenService.findByToken(token).ifPresent(storedToken -> {
+            storedToken.setExpired(true);
+            storedToken.setRevoked(true);
+            tokenService.save(storedToken);
+        });
+    }
+}
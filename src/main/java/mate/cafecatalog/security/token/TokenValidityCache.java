@@ -0,0 +1,80 @@
+package mate.cafecatalog.security.token;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Date;
+import java.util.function.BooleanSupplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Stored validity of access tokens keyed by token hash, an entry lives no longer than its token
+// and max-ttl bounds how long a revocation made by another instance stays unseen
+@Component
+public class TokenValidityCache {
+    private static final String CACHE_NAME = "tokenValidity";
+    private final Cache<String, Validity> cache;
+
+    public TokenValidityCache(MeterRegistry meterRegistry,
+                              @Value("${security.jwt.validity-cache.maximum-size:100000}")
+                              long maximumSize,
+                              @Value("${security.jwt.validity-cache.max-ttl:10m}")
+                              Duration maxTtl) {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ValidityExpiry(maxTtl.toNanos()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public boolean isValid(String tokenHash, Date expiration, BooleanSupplier loader) {
+        return cache.get(tokenHash,
+                hash -> new Validity(loader.getAsBoolean(), expiration.getTime())).valid;
+    }
+
+    // an eviction arriving while the entry is being loaded waits for the load and removes it
+    public void evict(String tokenHash) {
+        cache.invalidate(tokenHash);
+    }
+
+    private static class Validity {
+        private final boolean valid;
+        private final long expiresAt;
+
+        private Validity(boolean valid, long expiresAt) {
+            this.valid = valid;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class ValidityExpiry implements Expiry<String, Validity> {
+        private final long maxTtlNanos;
+
+        private ValidityExpiry(long maxTtlNanos) {
+            this.maxTtlNanos = maxTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Validity value, long currentTime) {
+            long untilExpiration = Duration.ofMillis(
+                    Math.max(0, value.expiresAt - System.currentTimeMillis())).toNanos();
+            return Math.min(maxTtlNanos, untilExpiration);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Validity value, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Validity value, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -3,8 +3,10 @@ package mate.cafecatalog.service;
 import java.util.List;
 import java.util.Map;
 import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.util.CursorPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 public interface CafeService {
 
@@ -12,9 +14,17 @@ public interface CafeService {
 
     Page<Cafe> findAll(Map<String, String> params, PageRequest pageRequest);
 
+    CursorPage<Cafe> findAllAfter(Map<String, String> params, String after, int count, Sort sort);
+
+    List<Cafe> findNearest(Map<String, String> params, int count);
+
+    List<String> suggest(String prefix, int count);
+
     Cafe get(Long id);
 
-    void processRating(Long cafeId, Integer rating);
+    Integer processRatings(Long cafeId, long ratingSum, long ratingCount);
+
+    Page<Cafe> findFavourites(Long userId, PageRequest pageRequest);
 
-    Page<Cafe> findAllByIdIn(List<Long> favouriteIds, PageRequest pageRequest);
+    CursorPage<Cafe> findFavouritesAfter(Long userId, String after, int count, Sort sort);
 }
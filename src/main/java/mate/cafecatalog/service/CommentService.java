@@ -1,15 +1,15 @@
 package mate.cafecatalog.service;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import mate.cafecatalog.dto.response.CommentResponseDto;
 import mate.cafecatalog.model.Comment;
+import mate.cafecatalog.util.CursorPage;
 
 public interface CommentService {
 
-    Comment add(Comment comment);
+    CompletableFuture<CommentResponseDto> add(Comment comment, Long userId);
 
-    List<Comment> findAllByCafeId(Long cafeId);
+    CursorPage<CommentResponseDto> findLatestByCafeId(Long cafeId, String after, int count);
 
-    List<Comment> findAllByUserId(Long userId);
-
-    Integer getAvgRatingByCafeId(Long cafeId);
+    CursorPage<CommentResponseDto> findLatestByUserId(Long userId, String after, int count);
 }
@@ -1,7 +1,7 @@
 package mate.cafecatalog.service;
 
+import java.util.List;
 import java.util.Optional;
-import mate.cafecatalog.model.Cafe;
 import mate.cafecatalog.model.User;
 
 public interface UserService {
@@ -11,13 +11,15 @@ public interface UserService {
 
     Optional<User> findByEmail(String email);
 
-    void addToFavourites(Cafe cafe, User user);
+    void addToFavourites(Long userId, Long cafeId);
 
-    void removeFromFavourites(Cafe cafe, User user);
+    void removeFromFavourites(Long userId, Long cafeId);
+
+    List<Long> findFavouriteIds(Long userId);
 
     Optional<User> findByUsername(String username);
 
     Optional<User> findByEmailOrUsername(String email, String username);
 
-    String getUserEmail();
+    User getReference(Long id);
 }
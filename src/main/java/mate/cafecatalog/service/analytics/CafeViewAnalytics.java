@@ -0,0 +1,85 @@
+package mate.cafecatalog.service.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import mate.cafecatalog.dto.response.CafeViewsResponseDto;
+import mate.cafecatalog.exception.DataProcessingException;
+import mate.cafecatalog.repository.CafeViewStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+// Writes the views counted by CafeViewCounter to cafe_views in one batch per flush
+@Component
+public class CafeViewAnalytics {
+    private static final Logger logger = LoggerFactory.getLogger(CafeViewAnalytics.class);
+    private static final String SELECT_SKETCHES = "SELECT cafe_id, visitors_sketch"
+            + " FROM cafe_views WHERE cafe_id IN (:ids) FOR UPDATE";
+    private static final String UPSERT = "INSERT INTO cafe_views"
+            + " (cafe_id, views, unique_visitors, visitors_sketch)"
+            + " VALUES (:cafeId, :views, :uniqueVisitors, :sketch)"
+            + " ON DUPLICATE KEY UPDATE views = views + VALUES(views),"
+            + " unique_visitors = VALUES(unique_visitors),"
+            + " visitors_sketch = VALUES(visitors_sketch)";
+    private final CafeViewCounter cafeViewCounter;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CafeViewStatsRepository cafeViewStatsRepository;
+
+    public CafeViewAnalytics(CafeViewCounter cafeViewCounter,
+                             NamedParameterJdbcTemplate jdbcTemplate,
+                             CafeViewStatsRepository cafeViewStatsRepository) {
+        this.cafeViewCounter = cafeViewCounter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.cafeViewStatsRepository = cafeViewStatsRepository;
+    }
+
+    public List<CafeViewsResponseDto> findMostViewed(int count) {
+        if (count < 1) {
+            throw new DataProcessingException("Count must be at least 1, but was " + count);
+        }
+        return cafeViewStatsRepository.findMostViewed(PageRequest.of(0, count));
+    }
+
+    // sketches are merged with the stored ones under a row lock so several instances can flush
+    @Transactional
+    @Scheduled(fixedDelayString = "${cafe.view-analytics.flush-interval:60000}")
+    public void flush() {
+        Map<Long, Long> views = new HashMap<>();
+        Map<Long, byte[]> sketches = new HashMap<>();
+        cafeViewCounter.drain((cafeId, count, sketch) -> {
+            views.put(cafeId, count);
+            sketches.put(cafeId, sketch);
+        });
+        if (views.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.query(SELECT_SKETCHES, new MapSqlParameterSource("ids", views.keySet()),
+                    resultSet -> {
+                        byte[] stored = resultSet.getBytes(2);
+                        if (stored != null) {
+                            sketches.merge(resultSet.getLong(1), stored, HyperLogLog::merge);
+                        }
+                    });
+            List<MapSqlParameterSource> rows = new ArrayList<>();
+            views.forEach((cafeId, count) -> rows.add(new MapSqlParameterSource()
+                    .addValue("cafeId", cafeId)
+                    .addValue("views", count)
+                    .addValue("uniqueVisitors", HyperLogLog.estimate(sketches.get(cafeId)))
+                    .addValue("sketch", sketches.get(cafeId))));
+            jdbcTemplate.batchUpdate(UPSERT, rows.toArray(MapSqlParameterSource[]::new));
+        } catch (RuntimeException e) {
+            // counts go back so the next flush writes them
+            cafeViewCounter.restore(views);
+            throw e;
+        }
+        logger.debug("Flushed views of {} cafes", views.size());
+    }
+}
@@ -0,0 +1,57 @@
+package mate.cafecatalog.service.analytics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.stereotype.Component;
+
+// Counts cafe page views in memory until CafeViewAnalytics flushes them.
+// Recording a view touches a striped LongAdder and one sketch register, with no allocation
+// once the cafe has been seen. Kept apart from the transactional flush so calls aren't proxied
+@Component
+public class CafeViewCounter {
+    private final Map<Long, CafeViews> viewsByCafe = new ConcurrentHashMap<>();
+
+    public void recordView(Long cafeId, Long userId) {
+        views(cafeId).record(HyperLogLog.hash(userId));
+    }
+
+    public void recordView(Long cafeId, String remoteAddress) {
+        views(cafeId).record(HyperLogLog.hash(remoteAddress));
+    }
+
+    // hands out views counted since the last drain with the visitor registers of each cafe,
+    // the registers are never reset as merging them again changes nothing
+    void drain(DrainConsumer consumer) {
+        viewsByCafe.forEach((cafeId, cafeViews) -> {
+            long views = cafeViews.views.sumThenReset();
+            if (views > 0) {
+                consumer.accept(cafeId, views, cafeViews.visitors.toBytes());
+            }
+        });
+    }
+
+    void restore(Map<Long, Long> views) {
+        views.forEach((cafeId, count) -> views(cafeId).views.add(count));
+    }
+
+    private CafeViews views(Long cafeId) {
+        CafeViews cafeViews = viewsByCafe.get(cafeId);
+        return cafeViews != null
+                ? cafeViews : viewsByCafe.computeIfAbsent(cafeId, id -> new CafeViews());
+    }
+
+    interface DrainConsumer {
+        void accept(Long cafeId, long views, byte[] visitorsSketch);
+    }
+
+    private static class CafeViews {
+        private final LongAdder views = new LongAdder();
+        private final HyperLogLog visitors = new HyperLogLog();
+
+        void record(long visitorHash) {
+            views.increment();
+            visitors.add(visitorHash);
+        }
+    }
+}
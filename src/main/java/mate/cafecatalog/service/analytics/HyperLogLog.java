@@ -0,0 +1,78 @@
+package mate.cafecatalog.service.analytics;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Unique count sketch with 2^10 registers, about 3% standard error.
+// Adding is a hash split and at most one CAS, without locks or allocation
+class HyperLogLog {
+    static final int PRECISION = 10;
+    static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+    private final AtomicIntegerArray registers = new AtomicIntegerArray(REGISTERS);
+
+    // hash has to be a well mixed 64 bit value
+    void add(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        int current = registers.get(index);
+        while (rank > current && !registers.compareAndSet(index, current, rank)) {
+            current = registers.get(index);
+        }
+    }
+
+    byte[] toBytes() {
+        byte[] bytes = new byte[REGISTERS];
+        for (int i = 0; i < REGISTERS; i++) {
+            bytes[i] = (byte) registers.get(i);
+        }
+        return bytes;
+    }
+
+    // registers of both sketches, as stored in the database
+    static byte[] merge(byte[] left, byte[] right) {
+        if (left == null || left.length != REGISTERS) {
+            return right;
+        }
+        byte[] merged = new byte[REGISTERS];
+        for (int i = 0; i < REGISTERS; i++) {
+            merged[i] = (byte) Math.max(left[i], right[i]);
+        }
+        return merged;
+    }
+
+    static long estimate(byte[] registers) {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        // small cardinalities are counted better by the share of empty registers
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    static long hash(long value) {
+        // murmur3 finalizer
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    // FNV-1a over the chars, finished by the murmur3 mix
+    static long hash(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash(hash);
+    }
+}
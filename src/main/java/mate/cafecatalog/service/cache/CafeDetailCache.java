@@ -0,0 +1,44 @@
+package mate.cafecatalog.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.function.Function;
+import mate.cafecatalog.dto.response.CafeResponseDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Assembled cafe details by cafe id, an entry is evicted as soon as the cafe or its comments change
+@Component
+public class CafeDetailCache {
+    private static final String CACHE_NAME = "cafeDetails";
+    private final Cache<Long, CafeResponseDto> cache;
+
+    public CafeDetailCache(MeterRegistry meterRegistry,
+                           @Value("${cafe.detail-cache.maximum-size:1000}") long maximumSize,
+                           @Value("${cafe.detail-cache.expire-after-write:10m}")
+                           Duration expireAfterWrite) {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    // an eviction arriving while the entry is being loaded waits for the load and removes it,
+    // so details read before a change never outlive the eviction of that change
+    public CafeResponseDto get(Long cafeId, Function<Long, CafeResponseDto> loader) {
+        return cache.get(cafeId, loader);
+    }
+
+    public void evict(Long cafeId) {
+        cache.invalidate(cafeId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,59 @@
+package mate.cafecatalog.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Keeps only ids and total count of a filtered page, the rows themselves are loaded by id
+@Component
+public class CafeQueryCache {
+    private static final String CACHE_NAME = "cafeQueries";
+    private final Cache<CafeQueryKey, CachedPage> cache;
+
+    public CafeQueryCache(MeterRegistry meterRegistry,
+                          @Value("${cafe.query-cache.maximum-size:10000}") long maximumSize,
+                          @Value("${cafe.query-cache.expire-after-write:60s}")
+                          Duration expireAfterWrite) {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Optional<CachedPage> get(CafeQueryKey key) {
+        return Optional.ofNullable(cache.getIfPresent(key));
+    }
+
+    public void put(CafeQueryKey key, List<Long> ids, long totalElements) {
+        cache.put(key, new CachedPage(List.copyOf(ids), totalElements));
+    }
+
+    // a rating change only drops the pages filtered or sorted by rating
+    public void invalidateDependingOn(String property) {
+        cache.asMap().keySet().removeIf(key -> key.dependsOn(property));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Getter
+    public static class CachedPage {
+        private final List<Long> ids;
+        private final long totalElements;
+
+        private CachedPage(List<Long> ids, long totalElements) {
+            this.ids = ids;
+            this.totalElements = totalElements;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package mate.cafecatalog.service.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class CafeQueryKey {
+    private static final String PARAMS_SPLIT_REGEX = ",";
+    private static final String PARAMS_DELIMITER = ",";
+    // filters matching any of their values, the range filters only read their first value
+    private static final Set<String> SET_FILTER_KEYS = Set.of("priceLevel", "noise", "option");
+    private final SortedMap<String, String> params;
+    private final Sort sort;
+    private final int page;
+    private final int size;
+
+    private CafeQueryKey(SortedMap<String, String> params, Sort sort, int page, int size) {
+        this.params = params;
+        this.sort = sort;
+        this.page = page;
+        this.size = size;
+    }
+
+    public static CafeQueryKey of(SortedMap<String, String> canonicalParams,
+                                  PageRequest pageRequest) {
+        return new CafeQueryKey(canonicalParams, pageRequest.getSort(),
+                pageRequest.getPageNumber(), pageRequest.getPageSize());
+    }
+
+    // "price= $$,$" and "price=$,$$" filter the same rows, so values are trimmed,
+    // and values of set filters are also deduplicated and sorted
+    public static SortedMap<String, String> canonicalize(Map<String, String> params) {
+        SortedMap<String, String> canonical = new TreeMap<>();
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            String key = entry.getKey().trim();
+            Stream<String> values = Arrays.stream(entry.getValue().split(PARAMS_SPLIT_REGEX))
+                    .map(String::trim)
+                    .filter(value -> !value.isEmpty());
+            if (SET_FILTER_KEYS.contains(key)) {
+                values = values.distinct().sorted();
+            }
+            canonical.put(key, values.collect(Collectors.joining(PARAMS_DELIMITER)));
+        }
+        return canonical;
+    }
+
+    // whether the cafes on the page can change when the property changes
+    public boolean dependsOn(String property) {
+        return params.containsKey(property) || sort.getOrderFor(property) != null;
+    }
+}
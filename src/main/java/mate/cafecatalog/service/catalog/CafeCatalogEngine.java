@@ -0,0 +1,79 @@
+package mate.cafecatalog.service.catalog;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.repository.CafeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+public class CafeCatalogEngine {
+    private static final Logger logger = LoggerFactory.getLogger(CafeCatalogEngine.class);
+    private final CafeRepository cafeRepository;
+    private final AtomicReference<CafeCatalogSnapshot> snapshot = new AtomicReference<>();
+    private final boolean enabled;
+
+    public CafeCatalogEngine(CafeRepository cafeRepository,
+                             @Value("${cafe.catalog.snapshot.enabled:false}") boolean enabled) {
+        this.cafeRepository = cafeRepository;
+        this.enabled = enabled;
+    }
+
+    public Optional<Page<Cafe>> findAll(Map<String, String> params, Pageable pageable) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        CafeCatalogSnapshot current = snapshot.get();
+        if (current == null) {
+            current = load();
+        }
+        return current.findAll(params, pageable);
+    }
+
+    public void updateRating(Long cafeId, Integer rating) {
+        snapshot.updateAndGet(current -> current == null
+                ? null : current.withRating(cafeId, rating));
+    }
+
+    @Transactional(readOnly = true)
+    @Scheduled(fixedDelayString = "${cafe.catalog.snapshot.refresh-interval:300000}")
+    public synchronized void refresh() {
+        if (enabled) {
+            snapshot.set(read());
+        }
+    }
+
+    // the next lookup reloads the snapshot, waits for a running refresh so it can't
+    // put back a snapshot read before the change
+    public synchronized void invalidate() {
+        snapshot.set(null);
+    }
+
+    // runs in the transaction of the caller
+    private synchronized CafeCatalogSnapshot load() {
+        CafeCatalogSnapshot current = snapshot.get();
+        if (current == null) {
+            current = read();
+            snapshot.set(current);
+        }
+        return current;
+    }
+
+    private CafeCatalogSnapshot read() {
+        // second query initializes imageLink of the same managed instances
+        List<Cafe> cafes = cafeRepository.findAllFetchOptions();
+        cafeRepository.findAllFetchImageLinks();
+        CafeCatalogSnapshot loaded = CafeCatalogSnapshot.of(cafes);
+        logger.info("Cafe catalog snapshot loaded, {} cafes", loaded.size());
+        return loaded;
+    }
+}
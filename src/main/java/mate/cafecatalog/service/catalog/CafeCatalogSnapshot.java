@@ -0,0 +1,306 @@
+package mate.cafecatalog.service.catalog;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.model.Option;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+// Immutable column store of the whole catalog, rows are addressed by their index
+public final class CafeCatalogSnapshot {
+    private static final int NULL_VALUE = Integer.MIN_VALUE;
+    private static final String PARAMS_SPLIT_REGEX = ",";
+    private static final String RANGE_SPLIT_REGEX = "-";
+    private static final String OPTION_SPLIT_REGEX = ":";
+    private static final String OPTION_EXCLUDE_VALUE = "no";
+    private static final String BLANK_RANGE_VALUE = "";
+    private static final int MIN_RANGE_VALUE = 0;
+    private static final int MAX_RANGE_VALUE = Integer.MAX_VALUE;
+    private static final String FILTER_KEY_RATING = "rating";
+    private static final String FILTER_KEY_MIN_ORDER = "minOrder";
+    private static final String FILTER_KEY_TABLES = "tables";
+    private static final String FILTER_KEY_NOISE = "noise";
+    private static final String FILTER_KEY_PRICE = "priceLevel";
+    private static final String FILTER_KEY_OPTION = "option";
+
+    private final Cafe[] rows;
+    private final long[] ids;
+    private final int[] rating;
+    private final int[] minOrder;
+    private final int[] tablesNumber;
+    private final int[] priceLevel;
+    private final int[] noiseLevel;
+    private final String[] priceLevelDictionary;
+    private final String[] noiseLevelDictionary;
+    private final double[] latitude;
+    private final double[] longitude;
+    private final Map<String, BitSet> optionRows;
+    private final Map<Long, Integer> rowById;
+    private final Map<String, int[]> sortKeys;
+
+    private CafeCatalogSnapshot(Cafe[] rows, long[] ids, int[] rating, int[] minOrder,
+                                int[] tablesNumber, int[] priceLevel, int[] noiseLevel,
+                                String[] priceLevelDictionary, String[] noiseLevelDictionary,
+                                double[] latitude, double[] longitude,
+                                Map<String, BitSet> optionRows, Map<Long, Integer> rowById,
+                                Map<String, int[]> sortKeys) {
+        this.rows = rows;
+        this.ids = ids;
+        this.rating = rating;
+        this.minOrder = minOrder;
+        this.tablesNumber = tablesNumber;
+        this.priceLevel = priceLevel;
+        this.noiseLevel = noiseLevel;
+        this.priceLevelDictionary = priceLevelDictionary;
+        this.noiseLevelDictionary = noiseLevelDictionary;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.optionRows = optionRows;
+        this.rowById = rowById;
+        this.sortKeys = sortKeys;
+    }
+
+    // cafes must be detached with initialized options and imageLink collections
+    public static CafeCatalogSnapshot of(List<Cafe> cafes) {
+        Cafe[] rows = cafes.stream()
+                .sorted(Comparator.comparing(Cafe::getId))
+                .toArray(Cafe[]::new);
+        int size = rows.length;
+        long[] ids = new long[size];
+        int[] rating = new int[size];
+        int[] minOrder = new int[size];
+        int[] tablesNumber = new int[size];
+        double[] latitude = new double[size];
+        double[] longitude = new double[size];
+        Map<String, BitSet> optionRows = new HashMap<>();
+        Map<Long, Integer> rowById = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            Cafe cafe = rows[row];
+            ids[row] = cafe.getId();
+            rating[row] = intValue(cafe.getRating());
+            minOrder[row] = intValue(cafe.getMinOrder());
+            tablesNumber[row] = intValue(cafe.getTablesNumber());
+            latitude[row] = doubleValue(cafe.getLatitude());
+            longitude[row] = doubleValue(cafe.getLongitude());
+            for (Option option : cafe.getOptions()) {
+                optionRows.computeIfAbsent(option.getName(), name -> new BitSet(size)).set(row);
+            }
+            rowById.put(cafe.getId(), row);
+        }
+        String[] priceLevelDictionary = dictionary(rows, Cafe::getPriceLevel);
+        String[] noiseLevelDictionary = dictionary(rows, Cafe::getNoiseLevel);
+        int[] priceLevel = encode(rows, Cafe::getPriceLevel, priceLevelDictionary);
+        int[] noiseLevel = encode(rows, Cafe::getNoiseLevel, noiseLevelDictionary);
+
+        // name and city are left to the database, its collation doesn't order them like String
+        Map<String, int[]> sortKeys = new HashMap<>();
+        sortKeys.put("id", rank(rows, Cafe::getId));
+        sortKeys.put("rating", rating);
+        sortKeys.put("minOrder", minOrder);
+        sortKeys.put("tablesNumber", tablesNumber);
+        sortKeys.put("priceLevel", priceLevel);
+        sortKeys.put("noiseLevel", noiseLevel);
+        sortKeys.put("latitude", rank(rows, Cafe::getLatitude));
+        sortKeys.put("longitude", rank(rows, Cafe::getLongitude));
+        return new CafeCatalogSnapshot(rows, ids, rating, minOrder, tablesNumber, priceLevel,
+                noiseLevel, priceLevelDictionary, noiseLevelDictionary, latitude, longitude,
+                optionRows, rowById, sortKeys);
+    }
+
+    // copy-on-write: only the rating column and the changed row are copied, the rest is shared
+    // with this snapshot
+    public CafeCatalogSnapshot withRating(Long cafeId, Integer value) {
+        Integer row = rowById.get(cafeId);
+        if (row == null) {
+            return this;
+        }
+        Cafe cafe = new Cafe();
+        BeanUtils.copyProperties(rows[row], cafe);
+        cafe.setRating(value);
+        Cafe[] newRows = Arrays.copyOf(rows, rows.length);
+        newRows[row] = cafe;
+        int[] newRating = Arrays.copyOf(rating, rating.length);
+        newRating[row] = intValue(value);
+        Map<String, int[]> newSortKeys = new HashMap<>(sortKeys);
+        newSortKeys.put("rating", newRating);
+        return new CafeCatalogSnapshot(newRows, ids, newRating, minOrder, tablesNumber, priceLevel,
+                noiseLevel, priceLevelDictionary, noiseLevelDictionary, latitude, longitude,
+                optionRows, rowById, newSortKeys);
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    // returns empty when a filter key or sort property can't be evaluated in memory
+    public Optional<Page<Cafe>> findAll(Map<String, String> params, Pageable pageable) {
+        BitSet matches = new BitSet(rows.length);
+        matches.set(0, rows.length);
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            String[] values = entry.getValue().split(PARAMS_SPLIT_REGEX);
+            switch (entry.getKey()) {
+                case FILTER_KEY_RATING:
+                    retainRange(matches, rating, values);
+                    break;
+                case FILTER_KEY_MIN_ORDER:
+                    retainRange(matches, minOrder, values);
+                    break;
+                case FILTER_KEY_TABLES:
+                    retainRange(matches, tablesNumber, values);
+                    break;
+                case FILTER_KEY_NOISE:
+                    retainIn(matches, noiseLevel, noiseLevelDictionary, values);
+                    break;
+                case FILTER_KEY_PRICE:
+                    retainIn(matches, priceLevel, priceLevelDictionary, values);
+                    break;
+                case FILTER_KEY_OPTION:
+                    retainOptions(matches, values);
+                    break;
+                default:
+                    return Optional.empty();
+            }
+        }
+        Comparator<Integer> comparator = comparator(pageable.getSort());
+        if (comparator == null) {
+            return Optional.empty();
+        }
+        Integer[] matchedRows = matches.stream().boxed().toArray(Integer[]::new);
+        Arrays.sort(matchedRows, comparator);
+        int from = (int) Math.min(pageable.getOffset(), matchedRows.length);
+        int to = Math.min(from + pageable.getPageSize(), matchedRows.length);
+        List<Cafe> content = Arrays.stream(matchedRows, from, to)
+                .map(row -> rows[row])
+                .collect(Collectors.toList());
+        return Optional.of(new PageImpl<>(content, pageable, matchedRows.length));
+    }
+
+    private Comparator<Integer> comparator(Sort sort) {
+        Comparator<Integer> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            int[] keys = sortKeys.get(order.getProperty());
+            if (keys == null) {
+                return null;
+            }
+            Comparator<Integer> byProperty = Comparator.comparingInt(row -> keys[row]);
+            comparator = comparator.thenComparing(order.isAscending()
+                    ? byProperty : byProperty.reversed());
+        }
+        return comparator.thenComparingLong(row -> ids[row]);
+    }
+
+    private void retainRange(BitSet matches, int[] column, String[] range) {
+        String[] rangeFromTo = range[0].split(RANGE_SPLIT_REGEX);
+        int from = rangeFromTo[0].equals(BLANK_RANGE_VALUE)
+                ? MIN_RANGE_VALUE
+                : Integer.parseInt(rangeFromTo[0]);
+        int to = rangeFromTo.length < 2
+                ? MAX_RANGE_VALUE
+                : Integer.parseInt(rangeFromTo[1]);
+        for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+            int value = column[row];
+            if (value == NULL_VALUE || value < from || value > to) {
+                matches.clear(row);
+            }
+        }
+    }
+
+    private void retainIn(BitSet matches, int[] column, String[] dictionary, String[] values) {
+        BitSet codes = new BitSet(dictionary.length);
+        for (String value : values) {
+            int code = Arrays.binarySearch(dictionary, value);
+            if (code >= 0) {
+                codes.set(code);
+            }
+        }
+        for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+            if (column[row] == NULL_VALUE || !codes.get(column[row])) {
+                matches.clear(row);
+            }
+        }
+    }
+
+    private void retainOptions(BitSet matches, String[] options) {
+        for (String value : options) {
+            boolean include = true;
+            if (value.contains(OPTION_SPLIT_REGEX)) {
+                String[] optionInclude = value.split(OPTION_SPLIT_REGEX);
+                if (optionInclude[1].equals(OPTION_EXCLUDE_VALUE)) {
+                    include = false;
+                }
+                value = optionInclude[0];
+            }
+            BitSet optionMatches = optionRows.get(value);
+            if (include) {
+                if (optionMatches == null) {
+                    matches.clear();
+                } else {
+                    matches.and(optionMatches);
+                }
+            } else if (optionMatches != null) {
+                matches.andNot(optionMatches);
+            }
+        }
+    }
+
+    private static String[] dictionary(Cafe[] rows, Function<Cafe, String> getter) {
+        TreeSet<String> values = new TreeSet<>();
+        for (Cafe cafe : rows) {
+            String value = getter.apply(cafe);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values.toArray(String[]::new);
+    }
+
+    private static int[] encode(Cafe[] rows, Function<Cafe, String> getter, String[] dictionary) {
+        int[] codes = new int[rows.length];
+        for (int row = 0; row < rows.length; row++) {
+            String value = getter.apply(rows[row]);
+            codes[row] = value == null ? NULL_VALUE : Arrays.binarySearch(dictionary, value);
+        }
+        return codes;
+    }
+
+    // dense rank of each row, nulls go first like in MySQL ascending order
+    private static <T extends Comparable<T>> int[] rank(Cafe[] rows, Function<Cafe, T> getter) {
+        Integer[] order = new Integer[rows.length];
+        for (int row = 0; row < rows.length; row++) {
+            order[row] = row;
+        }
+        Comparator<T> nullsFirst = Comparator.nullsFirst(Comparator.naturalOrder());
+        Arrays.sort(order, (a, b) -> nullsFirst.compare(getter.apply(rows[a]),
+                getter.apply(rows[b])));
+        int[] ranks = new int[rows.length];
+        int rank = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (i > 0 && nullsFirst.compare(getter.apply(rows[order[i - 1]]),
+                    getter.apply(rows[order[i]])) != 0) {
+                rank++;
+            }
+            ranks[order[i]] = rank;
+        }
+        return ranks;
+    }
+
+    private static int intValue(Integer value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+    private static double doubleValue(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+}
@@ -0,0 +1,210 @@
+package mate.cafecatalog.service.comment;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import mate.cafecatalog.dto.response.CommentResponseDto;
+import mate.cafecatalog.exception.ServiceOverloadedException;
+import mate.cafecatalog.model.Comment;
+import mate.cafecatalog.repository.CommentRepository;
+import mate.cafecatalog.service.CafeService;
+import mate.cafecatalog.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Write-behind pipeline for new comments. A comment is queued on the stripe of its cafe
+// and the writer thread of that stripe inserts everything queued so far in one transaction,
+// so a burst costs one JDBC batch and one rating update per cafe instead of one per comment.
+// A cafe always lands on the same stripe, so writers never wait on each other's cafe rows
+@Component
+public class CommentBatchWriter {
+    private static final Logger logger = LoggerFactory.getLogger(CommentBatchWriter.class);
+    private static final String QUEUE_SIZE_GAUGE = "comment.ingestion.queue.size";
+    private static final String BATCH_SIZE_SUMMARY = "comment.ingestion.batch.size";
+    private static final long POLL_TIMEOUT_MILLIS = 500;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+    private final CommentRepository commentRepository;
+    private final CafeService cafeService;
+    private final UserService userService;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<BlockingQueue<PendingComment>> stripes = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private final int batchSize;
+    private final DistributionSummary batchSizeSummary;
+    private volatile boolean running = true;
+
+    public CommentBatchWriter(CommentRepository commentRepository, CafeService cafeService,
+                              UserService userService, TransactionTemplate transactionTemplate,
+                              JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                              @Value("${cafe.comment-ingestion.stripes:0}") int stripesCount,
+                              @Value("${cafe.comment-ingestion.queue-capacity:1000}")
+                              int queueCapacity,
+                              @Value("${cafe.comment-ingestion.batch-size:100}") int batchSize) {
+        this.commentRepository = commentRepository;
+        this.cafeService = cafeService;
+        this.userService = userService;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        int count = stripesCount > 0 ? stripesCount : Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < count; i++) {
+            BlockingQueue<PendingComment> queue = new ArrayBlockingQueue<>(queueCapacity);
+            stripes.add(queue);
+            meterRegistry.gauge(QUEUE_SIZE_GAUGE, List.of(Tag.of("stripe", String.valueOf(i))),
+                    queue, BlockingQueue::size);
+        }
+        batchSizeSummary = meterRegistry.summary(BATCH_SIZE_SUMMARY);
+    }
+
+    @PostConstruct
+    public void start() {
+        alignIdGenerator();
+        for (BlockingQueue<PendingComment> queue : stripes) {
+            Thread writer = new Thread(() -> drain(queue),
+                    "comment-writer-" + (writers.size() + 1));
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    // completes with the stored comment and the cafe rating after its batch,
+    // a full stripe is rejected at once instead of letting requests pile up
+    public CompletableFuture<CommentResponseDto> submit(Comment comment, Long userId) {
+        PendingComment pending = new PendingComment(comment, userId);
+        int stripe = Math.floorMod(comment.getCafe().getId().hashCode(), stripes.size());
+        if (!running || !stripes.get(stripe).offer(pending)) {
+            throw new ServiceOverloadedException("Too many comments, try again later");
+        }
+        return pending.result;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // writers stop once their queues are empty
+        running = false;
+        for (Thread writer : writers) {
+            writer.join(SHUTDOWN_TIMEOUT_MILLIS);
+        }
+    }
+
+    private void drain(BlockingQueue<PendingComment> queue) {
+        List<PendingComment> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingComment first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                batchSizeSummary.record(batch.size());
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Comment writer failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingComment> batch) {
+        List<CommentResponseDto> responses;
+        try {
+            responses = transactionTemplate.execute(status -> insert(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // one bad comment must not fail the rest, halves are written again
+            // until it is alone in its batch
+            batch.forEach(pending -> pending.comment.setId(null));
+            write(batch.subList(0, batch.size() / 2));
+            write(batch.subList(batch.size() / 2, batch.size()));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result.complete(responses.get(i));
+        }
+    }
+
+    private List<CommentResponseDto> insert(List<PendingComment> batch) {
+        // rating sum and count per cafe, sorted so cafe rows are always locked in the same order.
+        // The cafe rows are locked before the inserts take their shared foreign key locks on them,
+        // otherwise two transactions deadlock upgrading that lock
+        Map<Long, long[]> ratings = new TreeMap<>();
+        List<Comment> comments = new ArrayList<>(batch.size());
+        for (PendingComment pending : batch) {
+            Comment comment = pending.comment;
+            comment.setUser(userService.getReference(pending.userId));
+            long[] cafeRatings = ratings.computeIfAbsent(comment.getCafe().getId(),
+                    id -> new long[2]);
+            if (comment.getRating() != null) {
+                cafeRatings[0] += comment.getRating();
+                cafeRatings[1]++;
+            }
+            comments.add(comment);
+        }
+        Map<Long, Integer> updatedRatings = new HashMap<>();
+        ratings.forEach((cafeId, cafeRatings) -> updatedRatings.put(cafeId,
+                cafeService.processRatings(cafeId, cafeRatings[0], cafeRatings[1])));
+        commentRepository.saveAll(comments);
+        // the user is only a reference, its username comes with the projection
+        Map<Long, CommentResponseDto> responses = commentRepository.findResponsesByIdIn(
+                        comments.stream().map(Comment::getId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(CommentResponseDto::getId, Function.identity()));
+        List<CommentResponseDto> result = new ArrayList<>(comments.size());
+        for (Comment comment : comments) {
+            CommentResponseDto response = responses.get(comment.getId());
+            response.setCafeRating(updatedRatings.get(comment.getCafe().getId()));
+            result.add(response);
+        }
+        return result;
+    }
+
+    // comments stored before the table generator have identity ids, so the generator
+    // must start past them. The pooled optimizer hands out the block below the stored value
+    private void alignIdGenerator() {
+        Long next = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM comments",
+                Long.class) + Comment.ID_ALLOCATION_SIZE + 1;
+        if (jdbcTemplate.update("UPDATE id_generators SET next_val = GREATEST(next_val, ?)"
+                + " WHERE sequence_name = 'comments'", next) == 0) {
+            jdbcTemplate.update("INSERT INTO id_generators (sequence_name, next_val)"
+                    + " VALUES ('comments', ?)", next);
+        }
+    }
+
+    private static class PendingComment {
+        private final Comment comment;
+        private final Long userId;
+        private final CompletableFuture<CommentResponseDto> result = new CompletableFuture<>();
+
+        PendingComment(Comment comment, Long userId) {
+            this.comment = comment;
+            this.userId = userId;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package mate.cafecatalog.service.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Writes whole tables as NDJSON, one object per line. Rows are read through a forward-only
+// cursor and written as they come, nothing goes through the persistence context,
+// so memory stays flat however many rows there are.
+// MySQL only streams with useCursorFetch=true on the datasource url
+@Component
+public class CatalogExporter {
+    private static final String CAFES_QUERY = "SELECT id, name, short_description, description,"
+            + " city, address, hours, price_level, min_order, noise_level, tables_number,"
+            + " latitude, longitude, vegan_option, alcohol, event_room, rating, rating_count,"
+            + " instagram_link, facebook_link, website_link, logo_link"
+            + " FROM cafes ORDER BY id";
+    private static final String[] CAFE_FIELDS = {"id", "name", "shortDescription", "description",
+            "city", "address", "hours", "priceLevel", "minOrder", "noiseLevel", "tablesNumber",
+            "latitude", "longitude", "veganOption", "alcohol", "eventRoom", "rating",
+            "ratingCount", "instagramLink", "facebookLink", "websiteLink", "logoLink"};
+    private static final String COMMENTS_QUERY = "SELECT id, cafe_id, user_id, text, rating,"
+            + " publicity_date"
+            + " FROM comments ORDER BY id";
+    private static final String[] COMMENT_FIELDS = {"id", "cafeId", "userId", "text", "rating",
+            "publicityDate"};
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int flushRows;
+
+    public CatalogExporter(DataSource dataSource, ObjectMapper objectMapper,
+                           @Value("${export.fetch-size:1000}") int fetchSize,
+                           @Value("${export.flush-rows:1000}") int flushRows) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.objectMapper = objectMapper;
+        this.flushRows = flushRows;
+    }
+
+    public void exportCafes(OutputStream out) throws IOException {
+        export(CAFES_QUERY, CAFE_FIELDS, out);
+    }
+
+    public void exportComments(OutputStream out) throws IOException {
+        export(COMMENTS_QUERY, COMMENT_FIELDS, out);
+    }
+
+    private void export(String query, String[] fields, OutputStream out) throws IOException {
+        // the generator must not close the response stream, the caller owns it
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.setRootValueSeparator(null);
+            int[] rows = new int[1];
+            jdbcTemplate.query(query, resultSet -> {
+                try {
+                    generator.writeStartObject();
+                    for (int i = 0; i < fields.length; i++) {
+                        Object value = resultSet.getObject(i + 1);
+                        generator.writeFieldName(fields[i]);
+                        generator.writeObject(value instanceof Timestamp
+                                ? ((Timestamp) value).toLocalDateTime() : value);
+                    }
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                    // sent in chunks, so the client starts reading before the query is done
+                    if (++rows[0] % flushRows == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package mate.cafecatalog.service.geo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import mate.cafecatalog.repository.CafeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Uniform latitude/longitude grid, every cell keeps the rows of cafes located in it
+@Component
+public class CafeGeoIndex {
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+    private static final int CAFE_ID_INDEX = 0;
+    private static final int LATITUDE_INDEX = 1;
+    private static final int LONGITUDE_INDEX = 2;
+    private final CafeRepository cafeRepository;
+    private final double cellSize;
+    private volatile Grid grid;
+
+    public CafeGeoIndex(CafeRepository cafeRepository,
+                        @Value("${cafe.geo-index.cell-size-degrees:0.05}") double cellSize) {
+        this.cafeRepository = cafeRepository;
+        this.cellSize = cellSize;
+    }
+
+    // ids of cafes not farther than radiusKm, nearest first
+    public List<Long> findWithin(double latitude, double longitude, double radiusKm) {
+        Grid current = getGrid();
+        double latitudeSpan = radiusKm / KM_PER_DEGREE;
+        double longitudeSpan = radiusKm / (KM_PER_DEGREE
+                * Math.max(Math.cos(Math.toRadians(Math.abs(latitude) + latitudeSpan)), 0.01));
+        List<Neighbour> neighbours = new ArrayList<>();
+        for (int y = cell(latitude - latitudeSpan); y <= cell(latitude + latitudeSpan); y++) {
+            for (int x = cell(longitude - longitudeSpan); x <= cell(longitude + longitudeSpan); x++) {
+                current.collect(y, x, latitude, longitude, radiusKm, neighbours);
+            }
+        }
+        return sortedIds(neighbours);
+    }
+
+    // k nearest cafes, rings of cells around the point are scanned until no unscanned
+    // cell can hold anything closer than the k-th candidate
+    public List<Long> findNearest(double latitude, double longitude, int k) {
+        Grid current = getGrid();
+        List<Neighbour> neighbours = new ArrayList<>();
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        int centerY = cell(latitude);
+        int centerX = cell(longitude);
+        int lastRing = current.lastRing(centerY, centerX);
+        for (int ring = 0; ring <= lastRing; ring++) {
+            for (int y = centerY - ring; y <= centerY + ring; y++) {
+                for (int x = centerX - ring; x <= centerX + ring; x++) {
+                    if (Math.abs(y - centerY) == ring || Math.abs(x - centerX) == ring) {
+                        current.collect(y, x, latitude, longitude, Double.MAX_VALUE, neighbours);
+                    }
+                }
+            }
+            if (neighbours.size() >= k) {
+                neighbours.sort(Comparator.comparingDouble(Neighbour::getDistance));
+                double scannedKm = ring * cellSize * KM_PER_DEGREE * Math.max(Math.cos(
+                        Math.toRadians(Math.min(90, Math.abs(latitude) + ring * cellSize))), 0);
+                if (neighbours.get(k - 1).getDistance() <= scannedKm) {
+                    break;
+                }
+            }
+        }
+        return sortedIds(neighbours).stream()
+                .limit(k)
+                .collect(Collectors.toList());
+    }
+
+    @Scheduled(fixedDelayString = "${cafe.geo-index.refresh-interval:300000}")
+    public synchronized void refresh() {
+        grid = read();
+    }
+
+    public static double distanceKm(double fromLatitude, double fromLongitude,
+                                    double toLatitude, double toLongitude) {
+        double latitudeDelta = Math.toRadians(toLatitude - fromLatitude);
+        double longitudeDelta = Math.toRadians(toLongitude - fromLongitude);
+        double a = Math.pow(Math.sin(latitudeDelta / 2), 2)
+                + Math.cos(Math.toRadians(fromLatitude)) * Math.cos(Math.toRadians(toLatitude))
+                * Math.pow(Math.sin(longitudeDelta / 2), 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // the next lookup rebuilds the grid, waits for a running refresh so it can't
+    // put back a grid read before the change
+    public synchronized void invalidate() {
+        grid = null;
+    }
+
+    private Grid getGrid() {
+        Grid current = grid;
+        return current == null ? load() : current;
+    }
+
+    // returns the grid it built, an invalidate right after can't hand back null
+    private synchronized Grid load() {
+        Grid current = grid;
+        if (current == null) {
+            current = read();
+            grid = current;
+        }
+        return current;
+    }
+
+    private Grid read() {
+        List<Object[]> locations = cafeRepository.findAllLocations();
+        long[] ids = new long[locations.size()];
+        double[] latitudes = new double[locations.size()];
+        double[] longitudes = new double[locations.size()];
+        Map<Long, List<Integer>> rowsByCell = new HashMap<>();
+        int[] bounds = {Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int row = 0; row < locations.size(); row++) {
+            Object[] location = locations.get(row);
+            ids[row] = (Long) location[CAFE_ID_INDEX];
+            latitudes[row] = (Double) location[LATITUDE_INDEX];
+            longitudes[row] = (Double) location[LONGITUDE_INDEX];
+            int y = cell(latitudes[row]);
+            int x = cell(longitudes[row]);
+            rowsByCell.computeIfAbsent(key(y, x), cell -> new ArrayList<>()).add(row);
+            bounds[0] = Math.min(bounds[0], y);
+            bounds[1] = Math.max(bounds[1], y);
+            bounds[2] = Math.min(bounds[2], x);
+            bounds[3] = Math.max(bounds[3], x);
+        }
+        Map<Long, int[]> cells = new HashMap<>();
+        rowsByCell.forEach((cell, rows) -> cells.put(cell, rows.stream()
+                .mapToInt(Integer::intValue)
+                .toArray()));
+        return new Grid(ids, latitudes, longitudes, cells, bounds);
+    }
+
+    private int cell(double degrees) {
+        return (int) Math.floor(degrees / cellSize);
+    }
+
+    private static long key(int y, int x) {
+        return ((long) y << 32) | (x & 0xFFFFFFFFL);
+    }
+
+    private static List<Long> sortedIds(List<Neighbour> neighbours) {
+        return neighbours.stream()
+                .sorted(Comparator.comparingDouble(Neighbour::getDistance)
+                        .thenComparingLong(Neighbour::getId))
+                .map(Neighbour::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static class Grid {
+        private final long[] ids;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final Map<Long, int[]> cells;
+        // min y, max y, min x, max x of non empty cells
+        private final int[] bounds;
+
+        private Grid(long[] ids, double[] latitudes, double[] longitudes, Map<Long, int[]> cells,
+                     int[] bounds) {
+            this.ids = ids;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.cells = cells;
+            this.bounds = bounds;
+        }
+
+        // ring around the cell beyond which there are no cafes
+        private int lastRing(int y, int x) {
+            if (ids.length == 0) {
+                return -1;
+            }
+            return Math.max(Math.max(Math.abs(y - bounds[0]), Math.abs(y - bounds[1])),
+                    Math.max(Math.abs(x - bounds[2]), Math.abs(x - bounds[3])));
+        }
+
+        private void collect(int y, int x, double latitude, double longitude, double radiusKm,
+                             List<Neighbour> neighbours) {
+            int[] rows = cells.get(key(y, x));
+            if (rows == null) {
+                return;
+            }
+            for (int row : rows) {
+                double distance = distanceKm(latitude, longitude, latitudes[row], longitudes[row]);
+                if (distance <= radiusKm) {
+                    neighbours.add(new Neighbour(ids[row], distance));
+                }
+            }
+        }
+    }
+
+    private static class Neighbour {
+        private final long id;
+        private final double distance;
+
+        private Neighbour(long id, double distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+        private long getId() {
+            return id;
+        }
+
+        private double getDistance() {
+            return distance;
+        }
+    }
+}
@@ -1,41 +1,166 @@
 package mate.cafecatalog.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import mate.cafecatalog.exception.DataProcessingException;
 import mate.cafecatalog.model.Cafe;
 import mate.cafecatalog.repository.CafeRepository;
+import mate.cafecatalog.repository.index.CafeOptionIndex;
 import mate.cafecatalog.repository.specification.CafeSpecificationManager;
+import mate.cafecatalog.repository.specification.KeysetSpecification;
 import mate.cafecatalog.service.CafeService;
-import mate.cafecatalog.service.CommentService;
+import mate.cafecatalog.service.cache.CafeDetailCache;
+import mate.cafecatalog.service.cache.CafeQueryCache;
+import mate.cafecatalog.service.cache.CafeQueryKey;
+import mate.cafecatalog.service.catalog.CafeCatalogEngine;
+import mate.cafecatalog.service.geo.CafeGeoIndex;
+import mate.cafecatalog.service.search.CafeSearchIndex;
+import mate.cafecatalog.util.CursorCodec;
+import mate.cafecatalog.util.CursorPage;
+import mate.cafecatalog.util.TransactionCallbacks;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
 public class CafeServiceImpl implements CafeService {
+    private static final String FILTER_KEY_NEAR = "near";
+    private static final String FILTER_KEY_RADIUS = "radius";
+    private static final String FILTER_KEY_QUERY = "q";
+    private static final String SORT_KEY_DISTANCE = "distance";
+    private static final String SORT_KEY_RELEVANCE = "relevance";
+    private static final String SORT_KEY_RATING = "rating";
+    private static final String POINT_SPLIT_REGEX = ",";
+    private static final String CAFE_ID_NAME = "id";
     private final CafeRepository cafeRepository;
     private final CafeSpecificationManager cafeSpecificationManager;
-    private final CommentService commentService;
+    private final CafeCatalogEngine cafeCatalogEngine;
+    private final CursorCodec cursorCodec;
+    private final CafeQueryCache cafeQueryCache;
+    private final CafeDetailCache cafeDetailCache;
+    private final CafeGeoIndex cafeGeoIndex;
+    private final CafeOptionIndex cafeOptionIndex;
+    private final CafeSearchIndex cafeSearchIndex;
+    @Value("${cafe.geo-index.default-radius-km:5}")
+    private double defaultRadiusKm;
+    @Value("${cafe.geo-index.max-radius-km:50}")
+    private double maxRadiusKm;
 
     @Override
     public Cafe save(Cafe cafe) {
-        return cafeRepository.save(cafe);
+        Cafe saved = cafeRepository.save(cafe);
+        // in-memory indexes are only rebuilt from the database once the cafe is visible there
+        TransactionCallbacks.afterCommit(() -> {
+            cafeSearchIndex.index(saved);
+            cafeOptionIndex.invalidate();
+            cafeGeoIndex.invalidate();
+            cafeCatalogEngine.invalidate();
+            cafeQueryCache.invalidateAll();
+            cafeDetailCache.evict(saved.getId());
+        });
+        return saved;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Cafe> findAll(Map<String, String> params, PageRequest pageRequest) {
-        Specification<Cafe> specification = null;
-        for (Map.Entry<String, String> entry : params.entrySet()) {
-            Specification<Cafe> sp = cafeSpecificationManager.get(entry.getKey(),
-                    entry.getValue().split(","));
-            specification = specification == null
-                    ? Specification.where(sp) : specification.and(sp);
+        checkRankingSort(params, pageRequest.getSort());
+        if (params.containsKey(FILTER_KEY_NEAR) || params.containsKey(FILTER_KEY_QUERY)) {
+            Map<String, String> filters = new HashMap<>(params);
+            Map<String, List<Long>> rankings = new LinkedHashMap<>();
+            if (filters.containsKey(FILTER_KEY_NEAR)) {
+                double[] point = parsePoint(filters.remove(FILTER_KEY_NEAR));
+                rankings.put(SORT_KEY_DISTANCE, cafeGeoIndex.findWithin(point[0], point[1],
+                        parseRadius(filters.remove(FILTER_KEY_RADIUS))));
+            }
+            if (filters.containsKey(FILTER_KEY_QUERY)) {
+                rankings.put(SORT_KEY_RELEVANCE,
+                        cafeSearchIndex.search(filters.remove(FILTER_KEY_QUERY)));
+            }
+            return findAllAmong(rankings, CafeQueryKey.canonicalize(filters), pageRequest);
+        }
+        SortedMap<String, String> canonicalParams = CafeQueryKey.canonicalize(params);
+        Optional<Page<Cafe>> inMemoryPage = cafeCatalogEngine.findAll(canonicalParams, pageRequest);
+        if (inMemoryPage.isPresent()) {
+            return inMemoryPage.get();
+        }
+        CafeQueryKey key = CafeQueryKey.of(canonicalParams, pageRequest);
+        Optional<CafeQueryCache.CachedPage> cachedPage = cafeQueryCache.get(key);
+        if (cachedPage.isPresent()) {
+            return new PageImpl<>(findAllByIdsInOrder(cachedPage.get().getIds()), pageRequest,
+                    cachedPage.get().getTotalElements());
+        }
+        Page<Cafe> page = hydrate(cafeRepository.findAll(getSpecification(canonicalParams),
+                pageRequest));
+        cafeQueryCache.put(key, page.map(Cafe::getId).getContent(), page.getTotalElements());
+        return page;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Cafe> findAllAfter(Map<String, String> params, String after, int count,
+                                         Sort sort) {
+        if (params.containsKey(FILTER_KEY_NEAR) || params.containsKey(FILTER_KEY_QUERY)) {
+            // distance and relevance orders come from in-memory rankings, not from columns
+            throw new DataProcessingException("Parameter after can't be combined with "
+                    + FILTER_KEY_NEAR + " or " + FILTER_KEY_QUERY + ", use page instead");
         }
-        return cafeRepository.findAll(specification, pageRequest);
+        checkRankingSort(params, sort);
+        Specification<Cafe> specification = Specification.where(getSpecification(params));
+        if (!after.isEmpty()) {
+            specification = specification.and(
+                    KeysetSpecification.after(sort, cursorCodec.decode(after)));
+        }
+        // one extra row tells whether there is a next page without a count query
+        return toCursorPage(cafeRepository.findTop(specification, sort, count + 1), count, sort);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Cafe> findNearest(Map<String, String> params, int count) {
+        Map<String, String> filters = new HashMap<>(params);
+        double[] point = parsePoint(filters.remove(FILTER_KEY_NEAR));
+        filters.remove(FILTER_KEY_RADIUS);
+        Specification<Cafe> specification = getSpecification(CafeQueryKey.canonicalize(filters));
+        // ids passing the other filters are read once, then the candidate set is widened
+        // over the in-memory grid until enough of the nearest cafes are among them
+        Set<Long> matching = specification == null
+                ? null : new HashSet<>(cafeRepository.findIds(specification, Sort.unsorted()));
+        for (int candidates = count; ; candidates *= 2) {
+            List<Long> nearest = cafeGeoIndex.findNearest(point[0], point[1], candidates);
+            List<Long> matched = matching == null ? nearest : nearest.stream()
+                    .filter(matching::contains)
+                    .collect(Collectors.toList());
+            if (matched.size() >= count || nearest.size() < candidates) {
+                return findAllByIdsInOrder(matched.subList(0, Math.min(count, matched.size())));
+            }
+        }
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int count) {
+        return cafeSearchIndex.suggest(prefix, count);
     }
 
     @Override
@@ -45,19 +170,201 @@ public class CafeServiceImpl implements CafeService {
     }
 
     @Override
-    public void processRating(Long cafeId, Integer rating) {
-        Cafe cafe = cafeRepository.findById(cafeId).orElseThrow(
-                () -> new DataProcessingException("Cafe with id " + cafeId + " not found"));
-        if (commentService.getAvgRatingByCafeId(cafeId) == null) {
-            cafe.setRating(rating);
-        } else {
-            cafe.setRating(commentService.getAvgRatingByCafeId(cafeId));
+    @Transactional
+    public Integer processRatings(Long cafeId, long ratingSum, long ratingCount) {
+        boolean found = ratingCount > 0
+                ? cafeRepository.addRatings(cafeId, ratingSum, ratingCount) > 0
+                : cafeRepository.existsById(cafeId);
+        if (!found) {
+            throw new DataProcessingException("Cafe with id " + cafeId + " not found");
         }
-        cafeRepository.save(cafe);
+        Integer updatedRating = cafeRepository.findRatingById(cafeId);
+        // caches must not be refilled from the database before the new comments are visible there
+        TransactionCallbacks.afterCommit(() -> {
+            if (ratingCount > 0) {
+                cafeCatalogEngine.updateRating(cafeId, updatedRating);
+                cafeQueryCache.invalidateDependingOn(SORT_KEY_RATING);
+            }
+            cafeDetailCache.evict(cafeId);
+        });
+        return updatedRating;
     }
 
     @Override
-    public Page<Cafe> findAllByIdIn(List<Long> favouriteIds, PageRequest pageRequest) {
-        return cafeRepository.findAllByIdIn(favouriteIds, pageRequest);
+    @Transactional(readOnly = true)
+    public Page<Cafe> findFavourites(Long userId, PageRequest pageRequest) {
+        List<Cafe> cafes = cafeRepository.findFavourites(userId, pageRequest.getSort(), null,
+                pageRequest.getOffset(), pageRequest.getPageSize());
+        return PageableExecutionUtils.getPage(hydrate(cafes), pageRequest,
+                () -> cafeRepository.countFavourites(userId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Cafe> findFavouritesAfter(Long userId, String after, int count,
+                                                Sort sort) {
+        List<Cafe> cafes = cafeRepository.findFavourites(userId, sort,
+                after.isEmpty() ? null : cursorCodec.decode(after), 0, count + 1);
+        return toCursorPage(cafes, count, sort);
+    }
+
+    private CursorPage<Cafe> toCursorPage(List<Cafe> cafes, int count, Sort sort) {
+        if (cafes.size() <= count) {
+            return new CursorPage<>(hydrate(cafes), null);
+        }
+        List<Cafe> items = hydrate(cafes.subList(0, count));
+        BeanWrapper last = new BeanWrapperImpl(items.get(count - 1));
+        List<Object> cursor = sort.stream()
+                .map(order -> last.getPropertyValue(order.getProperty()))
+                .collect(Collectors.toList());
+        return new CursorPage<>(items, cursorCodec.encode(cursor));
+    }
+
+    // rankings come from in-memory indexes, each key is the sort property standing for its order,
+    // only cafes present in every ranking are listed
+    private Page<Cafe> findAllAmong(Map<String, List<Long>> rankings,
+                                    SortedMap<String, String> canonicalParams,
+                                    PageRequest pageRequest) {
+        Set<Long> candidates = null;
+        for (List<Long> ranking : rankings.values()) {
+            if (candidates == null) {
+                candidates = new HashSet<>(ranking);
+            } else {
+                candidates.retainAll(ranking);
+            }
+        }
+        Map.Entry<String, List<Long>> rank = rankings.entrySet().stream()
+                .filter(entry -> pageRequest.getSort().getOrderFor(entry.getKey()) != null)
+                .findFirst()
+                .orElse(null);
+        Specification<Cafe> specification = getSpecification(canonicalParams);
+        List<Long> matched;
+        if (rank != null) {
+            List<Long> rankedIds = rank.getValue().stream()
+                    .filter(candidates::contains)
+                    .collect(Collectors.toList());
+            matched = specification == null
+                    ? rankedIds : retainMatching(rankedIds, specification);
+            if (pageRequest.getSort().getOrderFor(rank.getKey()).isDescending()) {
+                Collections.reverse(matched);
+            }
+        } else if (candidates.isEmpty()) {
+            matched = Collections.emptyList();
+        } else {
+            matched = cafeRepository.findIds(Specification.where(specification)
+                    .and(idIn(new ArrayList<>(candidates))), pageRequest.getSort());
+        }
+        int from = (int) Math.min(pageRequest.getOffset(), matched.size());
+        int to = Math.min(from + pageRequest.getPageSize(), matched.size());
+        return new PageImpl<>(findAllByIdsInOrder(matched.subList(from, to)), pageRequest,
+                matched.size());
+    }
+
+    private List<Long> retainMatching(List<Long> ids, Specification<Cafe> specification) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> matching = new HashSet<>(cafeRepository.findIds(
+                Specification.where(specification).and(idIn(ids)), Sort.unsorted()));
+        return ids.stream()
+                .filter(matching::contains)
+                .collect(Collectors.toList());
+    }
+
+    private Specification<Cafe> idIn(List<Long> ids) {
+        return (root, query, cb) -> root.get(CAFE_ID_NAME).in(ids);
+    }
+
+    // distance and relevance orders only exist for rankings made from near and q
+    private void checkRankingSort(Map<String, String> params, Sort sort) {
+        if (sort.getOrderFor(SORT_KEY_DISTANCE) != null && !params.containsKey(FILTER_KEY_NEAR)) {
+            throw new DataProcessingException("Sorting by " + SORT_KEY_DISTANCE
+                    + " requires parameter " + FILTER_KEY_NEAR);
+        }
+        if (sort.getOrderFor(SORT_KEY_RELEVANCE) != null
+                && !params.containsKey(FILTER_KEY_QUERY)) {
+            throw new DataProcessingException("Sorting by " + SORT_KEY_RELEVANCE
+                    + " requires parameter " + FILTER_KEY_QUERY);
+        }
+    }
+
+    private double[] parsePoint(String point) {
+        if (point == null) {
+            throw new DataProcessingException("Parameter near=latitude,longitude is required");
+        }
+        String[] coordinates = point.split(POINT_SPLIT_REGEX);
+        if (coordinates.length != 2) {
+            throw new DataProcessingException("Can't parse point " + point);
+        }
+        double latitude = parseNumber(coordinates[0].trim(), FILTER_KEY_NEAR);
+        double longitude = parseNumber(coordinates[1].trim(), FILTER_KEY_NEAR);
+        // the comparisons are false for NaN as well
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            throw new DataProcessingException("Point " + point + " is out of range");
+        }
+        return new double[] {latitude, longitude};
+    }
+
+    // the grid scan grows with the radius, so it is capped
+    private double parseRadius(String radius) {
+        if (radius == null) {
+            return defaultRadiusKm;
+        }
+        double radiusKm = parseNumber(radius.trim(), FILTER_KEY_RADIUS);
+        if (!(radiusKm > 0 && radiusKm <= maxRadiusKm)) {
+            throw new DataProcessingException("Parameter " + FILTER_KEY_RADIUS
+                    + " must be greater than 0 and at most " + maxRadiusKm + " km");
+        }
+        return radiusKm;
+    }
+
+    private double parseNumber(String value, String parameter) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new DataProcessingException("Can't parse " + parameter + " value " + value);
+        }
+    }
+
+    private List<Cafe> findAllByIdsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Cafe> cafesById = cafeRepository.findAllFetchOptionsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Cafe::getId, Function.identity()));
+        cafeRepository.findAllFetchImageLinksByIdIn(ids);
+        return ids.stream()
+                .map(cafesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private Specification<Cafe> getSpecification(Map<String, String> params) {
+        Specification<Cafe> specification = null;
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            Specification<Cafe> sp = cafeSpecificationManager.get(entry.getKey(),
+                    entry.getValue().split(","));
+            specification = specification == null
+                    ? Specification.where(sp) : specification.and(sp);
+        }
+        return specification;
+    }
+
+    private Page<Cafe> hydrate(Page<Cafe> page) {
+        hydrate(page.getContent());
+        return page;
+    }
+
+    // loads options and picture paths of the whole page in two queries instead of two per cafe,
+    // the fetched collections land on the page entities as they share the persistence context
+    private List<Cafe> hydrate(List<Cafe> cafes) {
+        if (!cafes.isEmpty()) {
+            List<Long> ids = cafes.stream()
+                    .map(Cafe::getId)
+                    .collect(Collectors.toList());
+            cafeRepository.findAllFetchOptionsByIdIn(ids);
+            cafeRepository.findAllFetchImageLinksByIdIn(ids);
+        }
+        return cafes;
     }
 }
@@ -1,46 +1,80 @@
 package mate.cafecatalog.service.impl;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import lombok.RequiredArgsConstructor;
+import mate.cafecatalog.dto.response.CommentResponseDto;
 import mate.cafecatalog.exception.DataProcessingException;
 import mate.cafecatalog.model.Comment;
-import mate.cafecatalog.model.User;
 import mate.cafecatalog.repository.CommentRepository;
 import mate.cafecatalog.service.CommentService;
-import mate.cafecatalog.service.UserService;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import mate.cafecatalog.service.comment.CommentBatchWriter;
+import mate.cafecatalog.util.CursorCodec;
+import mate.cafecatalog.util.CursorPage;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
 public class CommentServiceImpl implements CommentService {
     private final CommentRepository commentRepository;
-    private final UserService userService;
+    private final CommentBatchWriter commentBatchWriter;
+    private final CursorCodec cursorCodec;
 
     @Override
-    public Comment add(Comment comment) {
-        UserDetails details = (UserDetails) SecurityContextHolder.getContext()
-                .getAuthentication().getPrincipal();
-        String email = details.getUsername();
-        User user = userService.findByEmail(email).orElseThrow(
-                () -> new DataProcessingException("User with email " + email + " not found"));
-        comment.setUser(user);
-        return commentRepository.save(comment);
+    public CompletableFuture<CommentResponseDto> add(Comment comment, Long userId) {
+        return commentBatchWriter.submit(comment, userId);
     }
 
     @Override
-    public List<Comment> findAllByCafeId(Long cafeId) {
-        return commentRepository.findAllByCafeId(cafeId);
+    public CursorPage<CommentResponseDto> findLatestByCafeId(Long cafeId, String after,
+                                                             int count) {
+        return findLatest(after, count,
+                limit -> commentRepository.findLatestByCafeId(cafeId, limit),
+                (publicityDate, id, limit) -> commentRepository.findLatestByCafeIdBefore(cafeId,
+                        publicityDate, id, limit));
     }
 
     @Override
-    public List<Comment> findAllByUserId(Long userId) {
-        return commentRepository.findAllByUserId(userId);
+    public CursorPage<CommentResponseDto> findLatestByUserId(Long userId, String after,
+                                                             int count) {
+        return findLatest(after, count,
+                limit -> commentRepository.findLatestByUserId(userId, limit),
+                (publicityDate, id, limit) -> commentRepository.findLatestByUserIdBefore(userId,
+                        publicityDate, id, limit));
     }
 
-    @Override
-    public Integer getAvgRatingByCafeId(Long cafeId) {
-        return commentRepository.getAvgRatingByCafeId(cafeId);
+    // the cursor is (publicityDate, id) of the last comment of the previous page
+    private CursorPage<CommentResponseDto> findLatest(String after, int count,
+                                                      Function<Pageable,
+                                                              List<CommentResponseDto>> first,
+                                                      LatestBefore before) {
+        // one extra row tells whether there is a next page without a count query
+        PageRequest limit = PageRequest.of(0, count + 1);
+        List<CommentResponseDto> comments;
+        if (after.isEmpty()) {
+            comments = first.apply(limit);
+        } else {
+            List<Object> cursor = cursorCodec.decode(after);
+            try {
+                comments = before.find(LocalDateTime.parse(String.valueOf(cursor.get(0))),
+                        ((Number) cursor.get(1)).longValue(), limit);
+            } catch (RuntimeException e) {
+                throw new DataProcessingException("Invalid cursor " + after);
+            }
+        }
+        if (comments.size() <= count) {
+            return new CursorPage<>(comments, null);
+        }
+        CommentResponseDto last = comments.get(count - 1);
+        return new CursorPage<>(comments.subList(0, count),
+                cursorCodec.encode(List.of(last.getPublicityDate(), last.getId())));
+    }
+
+    private interface LatestBefore {
+        List<CommentResponseDto> find(LocalDateTime publicityDate, Long id, Pageable pageable);
     }
 }
@@ -3,29 +3,26 @@ package mate.cafecatalog.service.impl;
 import java.util.List;
 import java.util.Optional;
 import mate.cafecatalog.exception.DataProcessingException;
-import mate.cafecatalog.model.Cafe;
 import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.CafeRepository;
 import mate.cafecatalog.repository.UserRepository;
 import mate.cafecatalog.service.UserService;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 @Service
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final CafeRepository cafeRepository;
 
-    public UserServiceImpl(UserRepository userRepository,
-                           PasswordEncoder passwordEncoder) {
+    public UserServiceImpl(UserRepository userRepository, CafeRepository cafeRepository) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.cafeRepository = cafeRepository;
     }
 
+    // the password is expected to be encoded already, see PasswordHasher
     @Override
     public User save(User user) {
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
         return userRepository.save(user);
     }
 
@@ -41,25 +38,27 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public void addToFavourites(Cafe cafe, User user) {
-        List<Cafe> favourites;
-        favourites = user.getFavourites();
-        if (!favourites.contains(cafe)) {
-            favourites.add(cafe);
-            user.setFavourites(favourites);
-            userRepository.save(user);
+    public void addToFavourites(Long userId, Long cafeId) {
+        // MySQL ignores a missing cafe as well, other databases report the foreign key
+        try {
+            if (userRepository.addFavourite(userId, cafeId) > 0
+                    || cafeRepository.existsById(cafeId)) {
+                return;
+            }
+        } catch (DataIntegrityViolationException e) {
+            // falls through to the not found error
         }
+        throw new DataProcessingException("Cafe with id " + cafeId + " not found");
     }
 
     @Override
-    public void removeFromFavourites(Cafe cafe, User user) {
-        List<Cafe> favourites;
-        favourites = user.getFavourites();
-        if (favourites.contains(cafe)) {
-            favourites.remove(cafe);
-            user.setFavourites(favourites);
-            userRepository.save(user);
-        }
+    public void removeFromFavourites(Long userId, Long cafeId) {
+        userRepository.removeFavourite(userId, cafeId);
+    }
+
+    @Override
+    public List<Long> findFavouriteIds(Long userId) {
+        return userRepository.findFavouriteIds(userId);
     }
 
     @Override
@@ -72,8 +71,9 @@ public class UserServiceImpl implements UserService {
         return userRepository.findByEmailOrUsername(email, username);
     }
 
-    public String getUserEmail() {
-        return ((UserDetails) SecurityContextHolder.getContext()
-                .getAuthentication().getPrincipal()).getUsername();
+    // no query, for setting the user of a new row when only the id is known
+    @Override
+    public User getReference(Long id) {
+        return userRepository.getReferenceById(id);
     }
 }
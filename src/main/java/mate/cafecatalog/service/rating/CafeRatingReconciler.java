@@ -0,0 +1,39 @@
+package mate.cafecatalog.service.rating;
+
+import mate.cafecatalog.repository.CafeRepository;
+import mate.cafecatalog.service.cache.CafeDetailCache;
+import mate.cafecatalog.service.cache.CafeQueryCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+// Recounts rating totals of cafes whose running sum or count drifted from their comments,
+// e.g. after comments were edited directly in the database
+@Component
+public class CafeRatingReconciler {
+    private static final Logger logger = LoggerFactory.getLogger(CafeRatingReconciler.class);
+    private final CafeRepository cafeRepository;
+    private final CafeQueryCache cafeQueryCache;
+    private final CafeDetailCache cafeDetailCache;
+
+    public CafeRatingReconciler(CafeRepository cafeRepository, CafeQueryCache cafeQueryCache,
+                                CafeDetailCache cafeDetailCache) {
+        this.cafeRepository = cafeRepository;
+        this.cafeQueryCache = cafeQueryCache;
+        this.cafeDetailCache = cafeDetailCache;
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${cafe.rating.reconcile-interval:3600000}")
+    public void reconcile() {
+        int totals = cafeRepository.reconcileRatingTotals();
+        int ratings = cafeRepository.reconcileRatings();
+        if (totals > 0 || ratings > 0) {
+            cafeQueryCache.invalidateAll();
+            cafeDetailCache.invalidateAll();
+            logger.warn("Reconciled rating totals of {} cafes, ratings of {} cafes", totals, ratings);
+        }
+    }
+}
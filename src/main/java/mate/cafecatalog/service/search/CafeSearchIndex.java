@@ -0,0 +1,244 @@
+package mate.cafecatalog.service.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.repository.CafeRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Inverted index over cafe name and descriptions ranked with BM25,
+// matches in the name weigh more than in the short description and the description
+@Component
+public class CafeSearchIndex {
+    public static final int MAX_SUGGESTIONS = 20;
+    private static final String TOKEN_SPLIT_REGEX = "[^\\p{L}\\p{N}]+";
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int NAME_WEIGHT = 3;
+    private static final int SHORT_DESCRIPTION_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int CAFE_ID_INDEX = 0;
+    private static final int NAME_INDEX = 1;
+    private static final int SHORT_DESCRIPTION_INDEX = 2;
+    private static final int DESCRIPTION_INDEX = 3;
+    private final CafeRepository cafeRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+    private PrefixTrie terms = new PrefixTrie(MAX_SUGGESTIONS);
+    // texts of cafes indexed (null when removed) while a refresh reads the database
+    private Map<Long, Object[]> changedDuringRefresh;
+    private long totalLength;
+    private volatile boolean loaded;
+
+    public CafeSearchIndex(CafeRepository cafeRepository) {
+        this.cafeRepository = cafeRepository;
+    }
+
+    // ids of cafes matching any query term, best match first
+    public List<Long> search(String query) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = new HashMap<>();
+            double averageLength = documents.isEmpty() ? 0 : (double) totalLength / documents.size();
+            for (String term : tokenize(query)) {
+                Map<Long, Integer> postingList = postings.get(term);
+                if (postingList == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documents.size() - postingList.size() + 0.5)
+                        / (postingList.size() + 0.5));
+                postingList.forEach((cafeId, frequency) -> {
+                    double norm = K1 * (1 - B + B * documentLengths.get(cafeId) / averageLength);
+                    scores.merge(cafeId, idf * frequency * (K1 + 1) / (frequency + norm),
+                            Double::sum);
+                });
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // at most MAX_SUGGESTIONS indexed terms starting with the last word of the prefix,
+    // the ones found in more cafes first
+    public List<String> suggest(String prefix, int limit) {
+        ensureLoaded();
+        String[] words = prefix.toLowerCase(Locale.ROOT).split(TOKEN_SPLIT_REGEX);
+        // a single typed character is a prefix too, though it is too short to be a term
+        if (words.length == 0 || words[words.length - 1].isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            return terms.findTop(words[words.length - 1], limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void index(Cafe cafe) {
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRefresh != null) {
+                changedDuringRefresh.put(cafe.getId(), new Object[] {cafe.getId(), cafe.getName(),
+                        cafe.getShortDescription(), cafe.getDescription()});
+            }
+            Set<String> changed = new HashSet<>(termsOf(cafe.getId()));
+            put(cafe.getId(), cafe.getName(), cafe.getShortDescription(), cafe.getDescription());
+            changed.addAll(termsOf(cafe.getId()));
+            changed.forEach(this::updateSuggestion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long cafeId) {
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRefresh != null) {
+                changedDuringRefresh.put(cafeId, null);
+            }
+            Set<String> changed = new HashSet<>(termsOf(cafeId));
+            delete(cafeId);
+            changed.forEach(this::updateSuggestion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the texts are read without the lock, cafes indexed or removed meanwhile
+    // are applied again on top of them so the rebuild can't bring back older texts
+    @Scheduled(fixedDelayString = "${cafe.search-index.refresh-interval:300000}")
+    public synchronized void refresh() {
+        setChangedDuringRefresh(new HashMap<>());
+        try {
+            List<Object[]> texts = cafeRepository.findAllTexts();
+            lock.writeLock().lock();
+            try {
+                postings.clear();
+                documents.clear();
+                documentLengths.clear();
+                totalLength = 0;
+                texts.forEach(this::put);
+                changedDuringRefresh.forEach((cafeId, text) -> {
+                    if (text == null) {
+                        delete(cafeId);
+                    } else {
+                        put(text);
+                    }
+                });
+                Map<String, Integer> documentFrequencies = new HashMap<>();
+                postings.forEach((term, postingList) ->
+                        documentFrequencies.put(term, postingList.size()));
+                terms = PrefixTrie.of(documentFrequencies, MAX_SUGGESTIONS);
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            setChangedDuringRefresh(null);
+        }
+    }
+
+    private void setChangedDuringRefresh(Map<Long, Object[]> changed) {
+        lock.writeLock().lock();
+        try {
+            changedDuringRefresh = changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    refresh();
+                }
+            }
+        }
+    }
+
+    private void put(Object[] text) {
+        put((Long) text[CAFE_ID_INDEX], (String) text[NAME_INDEX],
+                (String) text[SHORT_DESCRIPTION_INDEX], (String) text[DESCRIPTION_INDEX]);
+    }
+
+    private void put(Long cafeId, String name, String shortDescription, String description) {
+        delete(cafeId);
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = addTokens(frequencies, name, NAME_WEIGHT)
+                + addTokens(frequencies, shortDescription, SHORT_DESCRIPTION_WEIGHT)
+                + addTokens(frequencies, description, DESCRIPTION_WEIGHT);
+        frequencies.forEach((term, frequency) -> {
+            postings.computeIfAbsent(term, t -> new HashMap<>()).put(cafeId, frequency);
+        });
+        documents.put(cafeId, frequencies);
+        documentLengths.put(cafeId, length);
+        totalLength += length;
+    }
+
+    private void delete(Long cafeId) {
+        Map<String, Integer> frequencies = documents.remove(cafeId);
+        if (frequencies == null) {
+            return;
+        }
+        for (String term : frequencies.keySet()) {
+            Map<Long, Integer> postingList = postings.get(term);
+            postingList.remove(cafeId);
+            if (postingList.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= documentLengths.remove(cafeId);
+    }
+
+    private Set<String> termsOf(Long cafeId) {
+        return documents.getOrDefault(cafeId, Collections.emptyMap()).keySet();
+    }
+
+    // suggestions are ranked by the number of cafes having the term
+    private void updateSuggestion(String term) {
+        Map<Long, Integer> postingList = postings.get(term);
+        terms.set(term, postingList == null ? 0 : postingList.size());
+    }
+
+    private static int addTokens(Map<String, Integer> frequencies, String text, int weight) {
+        List<String> tokens = tokenize(text);
+        tokens.forEach(token -> frequencies.merge(token, weight, Integer::sum));
+        return tokens.size() * weight;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split(TOKEN_SPLIT_REGEX)) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
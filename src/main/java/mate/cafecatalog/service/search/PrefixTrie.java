@@ -0,0 +1,111 @@
+package mate.cafecatalog.service.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Weighted terms of the search index, nodes are shared by terms with a common prefix.
+// Every node keeps the best terms below it, so a lookup never walks a whole subtree
+class PrefixTrie {
+    private final int topCount;
+    private final Map<String, Integer> weights = new HashMap<>();
+    private final Comparator<String> order = Comparator.<String>comparingInt(weights::get)
+            .reversed()
+            .thenComparing(Comparator.naturalOrder());
+    private final Node root = new Node();
+
+    PrefixTrie(int topCount) {
+        this.topCount = topCount;
+    }
+
+    static PrefixTrie of(Map<String, Integer> weights, int topCount) {
+        PrefixTrie trie = new PrefixTrie(topCount);
+        weights.forEach((term, weight) -> {
+            Node node = trie.root;
+            for (int i = 0; i < term.length(); i++) {
+                node = node.children.computeIfAbsent(term.charAt(i), c -> new Node());
+            }
+            node.term = term;
+            trie.weights.put(term, weight);
+        });
+        trie.rebuild(trie.root);
+        return trie;
+    }
+
+    // a weight of 0 removes the term
+    void set(String term, int weight) {
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        path.push(node);
+        for (int i = 0; i < term.length(); i++) {
+            node = weight > 0
+                    ? node.children.computeIfAbsent(term.charAt(i), c -> new Node())
+                    : node.children.get(term.charAt(i));
+            if (node == null) {
+                return;
+            }
+            path.push(node);
+        }
+        if (weight > 0) {
+            weights.put(term, weight);
+            node.term = term;
+        } else {
+            weights.remove(term);
+            node.term = null;
+        }
+        // best terms are rebuilt bottom up along the path,
+        // branch nodes which no longer lead to any term are dropped
+        for (int depth = term.length(); depth >= 0; depth--) {
+            Node current = path.pop();
+            if (depth > 0 && current.isEmpty()) {
+                path.peek().children.remove(term.charAt(depth - 1));
+            } else {
+                current.top = best(current);
+            }
+        }
+    }
+
+    // at most topCount terms starting with the prefix, heaviest first
+    List<String> findTop(String prefix, int limit) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(node.top.subList(0, Math.min(limit, node.top.size())));
+    }
+
+    private void rebuild(Node node) {
+        node.children.values().forEach(this::rebuild);
+        node.top = best(node);
+    }
+
+    private List<String> best(Node node) {
+        Stream<String> own = node.term == null ? Stream.empty() : Stream.of(node.term);
+        return Stream.concat(own, node.children.values().stream()
+                        .flatMap(child -> child.top.stream()))
+                .sorted(order)
+                .limit(topCount)
+                .collect(Collectors.toList());
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new TreeMap<>();
+        private String term;
+        private List<String> top = Collections.emptyList();
+
+        private boolean isEmpty() {
+            return term == null && children.isEmpty();
+        }
+    }
+}
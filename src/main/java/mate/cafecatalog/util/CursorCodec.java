@@ -0,0 +1,38 @@
+package mate.cafecatalog.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import mate.cafecatalog.exception.DataProcessingException;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CursorCodec {
+    private final ObjectMapper objectMapper;
+
+    public CursorCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public String encode(List<Object> values) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(objectMapper.writeValueAsBytes(values));
+        } catch (JsonProcessingException e) {
+            throw new DataProcessingException("Can't encode cursor " + values);
+        }
+    }
+
+    public List<Object> decode(String cursor) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.UTF_8));
+            return objectMapper.readValue(json, new TypeReference<>() {});
+        } catch (IllegalArgumentException | IOException e) {
+            throw new DataProcessingException("Invalid cursor " + cursor);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package mate.cafecatalog.util;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.Getter;
+
+@Getter
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(items.stream()
+                .map(mapper)
+                .collect(Collectors.toList()), nextCursor);
+    }
+}
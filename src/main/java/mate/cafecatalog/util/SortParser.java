@@ -11,6 +11,7 @@ public class SortParser {
     private static final String FIELD_DIR_PARSE_REGEX = ":";
     private static final int FIELD_VALUE_INDEX = 0;
     private static final int DIR_VALUE_INDEX = 1;
+    private static final String TIEBREAK_FIELD = "id";
 
     public Sort parse(String sortBy) {
         List<Sort.Order> orders = new ArrayList<>();
@@ -33,4 +34,12 @@ public class SortParser {
         }
         return Sort.by(orders);
     }
+
+    // keyset pagination needs a total order, so id is appended as the last sort key
+    public Sort parseWithTiebreak(String sortBy) {
+        Sort sort = parse(sortBy);
+        return sort.getOrderFor(TIEBREAK_FIELD) == null
+                ? sort.and(Sort.by(Sort.Direction.ASC, TIEBREAK_FIELD))
+                : sort;
+    }
 }
@@ -0,0 +1,90 @@
+package mate.cafecatalog.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class CafeControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void getAllAfter_rejectsInvalidRequests() throws Exception {
+        mockMvc.perform(get("/api/cafe").param("after", "").param("count", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/cafe").param("after", "").param("count", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/cafe").param("after", "").param("q", "latte"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/cafe").param("after", "").param("near", "50.45,30.52"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/cafe").param("after", "").param("count", "1"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getAll_rejectsDistanceSortWithoutPoint() throws Exception {
+        mockMvc.perform(get("/api/cafe").param("sortBy", "distance"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/cafe").param("after", "").param("sortBy", "distance"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/cafe").param("sortBy", "distance")
+                        .param("near", "50.45,30.52"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getNearest_rejectsInvalidCount() throws Exception {
+        mockMvc.perform(get("/api/cafe/nearest").param("near", "50.45,30.52")
+                        .param("count", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void suggest_rejectsInvalidCount() throws Exception {
+        mockMvc.perform(get("/api/cafe/suggest").param("q", "c").param("count", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/cafe/suggest").param("q", "c").param("count", "21"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/cafe/suggest").param("q", "c").param("count", "1"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getComments_rejectsInvalidCount() throws Exception {
+        mockMvc.perform(get("/api/cafe/1/comments").param("count", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/cafe/1/comments").param("count", "1"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getMostViewed_rejectsInvalidCount() throws Exception {
+        mockMvc.perform(get("/api/cafe/most-viewed").param("count", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAll_rejectsInvalidPointAndRadius() throws Exception {
+        for (String near : List.of("NaN,0", "Infinity,0", "91,0", "0,-180.5", "abc,1", "1")) {
+            mockMvc.perform(get("/api/cafe").param("near", near))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(get("/api/cafe/nearest").param("near", near))
+                    .andExpect(status().isBadRequest());
+        }
+        for (String radius : List.of("Infinity", "NaN", "0", "-1", "1000000", "far")) {
+            mockMvc.perform(get("/api/cafe").param("near", "0,0").param("radius", radius))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(get("/api/cafe").param("near", "-90,180").param("radius", "50"))
+                .andExpect(status().isOk());
+    }
+}
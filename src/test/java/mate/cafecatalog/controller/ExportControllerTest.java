@@ -0,0 +1,123 @@
+package mate.cafecatalog.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.model.Comment;
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.CafeRepository;
+import mate.cafecatalog.repository.CommentRepository;
+import mate.cafecatalog.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@SpringBootTest
+class ExportControllerTest {
+    private static final int CAFES_COUNT = 5;
+    @Autowired
+    private ExportController exportController;
+    @Autowired
+    private CafeRepository cafeRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void exportComments_writesOneJsonObjectPerRow() throws Exception {
+        User user = new User();
+        user.setEmail("exporter@gmail.com");
+        user.setUsername("exporter");
+        user.setPassword("password");
+        user = userRepository.save(user);
+        for (int i = 0; i < CAFES_COUNT; i++) {
+            Cafe cafe = new Cafe();
+            cafe.setName("Exported cafe " + i);
+            cafe = cafeRepository.save(cafe);
+            Comment comment = new Comment();
+            comment.setText("Exported comment " + i);
+            comment.setRating(i % 5 + 1);
+            comment.setCafe(cafe);
+            comment.setUser(user);
+            commentRepository.save(comment);
+        }
+        List<JsonNode> comments = parse(write(exportController.exportComments("",
+                new MockHttpServletRequest())));
+        assertEquals(commentRepository.count(), comments.size());
+        JsonNode last = comments.get(comments.size() - 1);
+        assertEquals("Exported comment " + (CAFES_COUNT - 1), last.get("text").asText());
+        assertEquals(user.getId(), last.get("userId").asLong());
+        assertTrue(last.get("publicityDate").isTextual());
+
+        List<JsonNode> cafes = parse(write(exportController.exportCafes("",
+                new MockHttpServletRequest())));
+        assertEquals(cafeRepository.count(), cafes.size());
+    }
+
+    @Test
+    void exportCafes_compressesWhenAccepted() throws Exception {
+        Cafe cafe = new Cafe();
+        cafe.setName("Compressed cafe");
+        cafeRepository.save(cafe);
+        ResponseEntity<StreamingResponseBody> response =
+                exportController.exportCafes("gzip, deflate",
+                        new MockHttpServletRequest());
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        byte[] compressed = write(response);
+        byte[] plain = write(exportController.exportCafes("", new MockHttpServletRequest()));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(plain, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void exportCafes_onlyExportGetsLongTimeout() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(exportController).build();
+        MvcResult result = mockMvc.perform(get("/api/export/cafes"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(Duration.ofMinutes(30).toMillis(),
+                result.getRequest().getAsyncContext().getTimeout());
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+    }
+
+    private byte[] write(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+
+    private List<JsonNode> parse(byte[] ndjson) throws Exception {
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : new String(ndjson, StandardCharsets.UTF_8).split("\n")) {
+            rows.add(objectMapper.readTree(line));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,84 @@
+package mate.cafecatalog.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import javax.persistence.EntityManagerFactory;
+import mate.cafecatalog.dto.request.CommentRequestDto;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.CafeRepository;
+import mate.cafecatalog.repository.UserRepository;
+import mate.cafecatalog.security.AuthenticatedUser;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+// statements per cabinet endpoint once the principal carries the user id,
+// the comments give the counts of the by-email lookups it replaced
+@SpringBootTest
+class UserControllerTest {
+    @Autowired
+    private UserController userController;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CafeRepository cafeRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+    private AuthenticatedUser principal;
+    private Long cafeId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        User user = new User();
+        user.setEmail("cabinet@gmail.com");
+        user.setUsername("cabinet");
+        user.setPassword("password");
+        user = userRepository.save(user);
+        Cafe cafe = new Cafe();
+        cafe.setName("Cabinet cafe");
+        cafeId = cafeRepository.save(cafe).getId();
+        principal = new AuthenticatedUser(user.getId(), user.getEmail(),
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    @Test
+    void cabinetEndpoints_doNotLookUpTheUser() {
+        statistics.clear();
+        userController.addToFavourites(principal, cafeId);
+        // was 3
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        userController.getUserFavourites(principal, 0, 6, "id");
+        // was 5
+        assertEquals(3, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        CommentRequestDto comment = new CommentRequestDto();
+        comment.setCafeId(cafeId);
+        comment.setRating(4);
+        comment.setText("Nice");
+        assertEquals("cabinet", userController.addComment(principal, comment).join()
+                .getUsername());
+        // was 6
+        assertEquals(5, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        userController.getProfile(principal);
+        // was 7
+        assertEquals(6, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        userController.removeFromFavourites(principal, cafeId);
+        // was 3
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,77 @@
+package mate.cafecatalog.dto.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import javax.persistence.EntityManagerFactory;
+import mate.cafecatalog.dto.response.UserResponseDto;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.model.Comment;
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.CafeRepository;
+import mate.cafecatalog.repository.CommentRepository;
+import mate.cafecatalog.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class UserMapperTest {
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CafeRepository cafeRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void mapToDto_statementCountDoesNotDependOnUserActivity() {
+        User light = createUser("light", 1, 1);
+        User heavy = createUser("heavy", 40, 60);
+        long lightStatements = countProfileStatements(light);
+        UserResponseDto heavyProfile = userMapper.mapToDto(heavy);
+        long heavyStatements = countProfileStatements(heavy);
+        assertEquals(lightStatements, heavyStatements);
+        assertEquals(40, heavyProfile.getFavouritesId().size());
+        assertEquals(6, heavyProfile.getFavourites().size());
+        assertEquals(10, heavyProfile.getComments().size());
+        assertNotNull(heavyProfile.getNextCommentsCursor());
+    }
+
+    private long countProfileStatements(User user) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        userMapper.mapToDto(user);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User createUser(String name, int favouritesCount, int commentsCount) {
+        User user = new User();
+        user.setEmail(name + "@gmail.com");
+        user.setUsername(name);
+        user.setPassword("password");
+        user = userRepository.save(user);
+        Cafe cafe = null;
+        for (int i = 0; i < favouritesCount; i++) {
+            cafe = new Cafe();
+            cafe.setName(name + " cafe " + i);
+            cafe = cafeRepository.save(cafe);
+            userRepository.addFavourite(user.getId(), cafe.getId());
+        }
+        for (int i = 0; i < commentsCount; i++) {
+            Comment comment = new Comment();
+            comment.setText("Comment " + i);
+            comment.setRating(i % 5 + 1);
+            comment.setCafe(cafe);
+            comment.setUser(user);
+            commentRepository.save(comment);
+        }
+        return user;
+    }
+}
@@ -0,0 +1,80 @@
+package mate.cafecatalog.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import mate.cafecatalog.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class PasswordHasherTest {
+    private static final int QUEUE_CAPACITY = 2;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PasswordHasher passwordHasher =
+            new PasswordHasher(new BlockingEncoder(release), meterRegistry, 1, QUEUE_CAPACITY);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        passwordHasher.shutdown();
+    }
+
+    @Test
+    void encode_rejectsWhenQueueIsFull() throws Exception {
+        CompletableFuture<String> running = passwordHasher.encode("password");
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            passwordHasher.encode("password");
+        }
+        assertThrows(ServiceOverloadedException.class, () -> passwordHasher.encode("password"));
+        assertEquals(QUEUE_CAPACITY,
+                meterRegistry.get("password.hashing.queue.size").gauge().value());
+        release.countDown();
+        assertEquals("{hashed}password", running.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void matches_recordsHashingTime() throws Exception {
+        release.countDown();
+        assertTrue(passwordHasher.matches("password", "{hashed}password")
+                .get(5, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("password.hashing")
+                .tag("operation", "matches").timer().count());
+        assertEquals(1, meterRegistry.get("password.hashing.queue.wait").timer().count());
+    }
+
+    private static class BlockingEncoder implements PasswordEncoder {
+        private final CountDownLatch release;
+
+        BlockingEncoder(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            await();
+            return "{hashed}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            await();
+            return encodedPassword.equals("{hashed}" + rawPassword);
+        }
+
+        private void await() {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
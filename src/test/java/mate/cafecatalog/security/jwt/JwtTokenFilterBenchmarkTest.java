@@ -0,0 +1,97 @@
+package mate.cafecatalog.security.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.FilterChain;
+import mate.cafecatalog.security.AuthenticatedUser;
+import mate.cafecatalog.security.token.TokenRevocation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+// the timing comparison only runs with -Dbenchmark=true
+class JwtTokenFilterBenchmarkTest {
+    private static final int REQUESTS = 10;
+    private static final int WARMUP_REQUESTS = 20_000;
+    private static final int MEASURED_REQUESTS = 50_000;
+    private static final String EMAIL = "user@gmail.com";
+    // stub only, recording invocations would cost more than the filter itself
+    private final TokenRevocation tokenRevocation = mock(TokenRevocation.class,
+            withSettings().stubOnly());
+    private final AtomicInteger userLookups = new AtomicInteger();
+    private final UserDetailsService userDetailsService = email -> {
+        userLookups.incrementAndGet();
+        return User.withUsername(email).password("").roles("USER").build();
+    };
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_claimsModeSkipsUserLookup() throws Exception {
+        run(provider(JwtTokenProvider.AuthMode.DATABASE), REQUESTS);
+        assertEquals(REQUESTS, userLookups.get());
+        userLookups.set(0);
+        run(provider(JwtTokenProvider.AuthMode.CLAIMS), REQUESTS);
+        assertEquals(0, userLookups.get());
+        AuthenticatedUser principal = (AuthenticatedUser) SecurityContextHolder.getContext()
+                .getAuthentication().getPrincipal();
+        assertEquals(42L, principal.getId());
+        assertEquals(EMAIL, principal.getUsername());
+        assertEquals("ROLE_USER", principal.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void doFilter_claimsModeIsFaster() throws Exception {
+        long databaseNanos = measure(provider(JwtTokenProvider.AuthMode.DATABASE));
+        long claimsNanos = measure(provider(JwtTokenProvider.AuthMode.CLAIMS));
+        assertTrue(claimsNanos < databaseNanos,
+                "CLAIMS " + claimsNanos + " ns, DATABASE " + databaseNanos + " ns per request");
+    }
+
+    private long measure(JwtTokenProvider provider) throws Exception {
+        run(provider, WARMUP_REQUESTS);
+        long start = System.nanoTime();
+        run(provider, MEASURED_REQUESTS);
+        return (System.nanoTime() - start) / MEASURED_REQUESTS;
+    }
+
+    private JwtTokenProvider provider(JwtTokenProvider.AuthMode authMode) {
+        when(tokenRevocation.isValid(anyString(), any(), any(), any())).thenReturn(true);
+        JwtTokenProvider provider = new JwtTokenProvider(userDetailsService, tokenRevocation);
+        ReflectionTestUtils.setField(provider, "secretKey", "0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.setField(provider, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(provider, "authMode", authMode);
+        provider.init();
+        return provider;
+    }
+
+    private void run(JwtTokenProvider provider, int requests) throws Exception {
+        JwtTokenFilter filter = new JwtTokenFilter(provider);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization",
+                "Bearer " + provider.createToken(42L, EMAIL, List.of("USER"), null, false));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (servletRequest, servletResponse) -> { };
+        for (int i = 0; i < requests; i++) {
+            filter.doFilter(request, response, chain);
+        }
+    }
+}
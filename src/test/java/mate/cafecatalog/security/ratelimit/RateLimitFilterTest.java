@@ -0,0 +1,81 @@
+package mate.cafecatalog.security.ratelimit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+// a login rule refilling slowly enough that no token comes back while the logins hash
+// passwords, and a key long enough for HS256 since the logins sign real tokens
+@SpringBootTest(properties = {"security.rate-limit.enabled=true",
+        "security.rate-limit.rules[0].path=/api/auth/login",
+        "security.rate-limit.rules[0].capacity=" + RateLimitFilterTest.LOGIN_CAPACITY,
+        "security.rate-limit.rules[0].refill-period=1h",
+        "security.jwt.token.secret-key=0123456789abcdef0123456789abcdef"})
+@AutoConfigureMockMvc
+class RateLimitFilterTest {
+    static final int LOGIN_CAPACITY = 5;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void asyncRequest_takesOneToken() throws Exception {
+        assertLimited("limited", "/api/auth/login", "10.0.0.17");
+    }
+
+    @Test
+    void trailingSlash_sharesTheLimit() throws Exception {
+        assertLimited("slashed", "/api/auth/login/", "10.0.0.18");
+    }
+
+    // the logins of different users from one address, each one completes and takes a token
+    private void assertLimited(String prefix, String path, String address) throws Exception {
+        String password = passwordEncoder.encode("password");
+        for (int i = 0; i <= LOGIN_CAPACITY; i++) {
+            User user = new User();
+            user.setEmail(prefix + i + "@gmail.com");
+            user.setUsername(prefix + i);
+            user.setPassword(password);
+            userRepository.save(user);
+        }
+        for (int i = 0; i < LOGIN_CAPACITY; i++) {
+            MvcResult result = mockMvc.perform(login(prefix + i, path, address))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            // the async dispatch goes through the filter chain again
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(login(prefix + LOGIN_CAPACITY, path, address))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    private MockHttpServletRequestBuilder login(String username, String path, String address) {
+        return post(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + username + "\",\"password\":\"password\"}")
+                .with(request -> {
+                    // the limiter matches the servlet path, which MockMvc leaves empty,
+                    // behind the default servlet mapping it is the whole path
+                    request.setServletPath(path);
+                    request.setRemoteAddr(address);
+                    return request;
+                });
+    }
+}
@@ -0,0 +1,108 @@
+package mate.cafecatalog.security.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import mate.cafecatalog.security.ratelimit.RateLimitProperties.KeyType;
+import mate.cafecatalog.security.ratelimit.RateLimitProperties.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+class RateLimiterTest {
+    private static final int CAPACITY = 3;
+    private final AtomicLong clock = new AtomicLong();
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRules(List.of(rule("/api/auth/login", KeyType.IP),
+                rule("/api/cabinet/comment", KeyType.USER)));
+        rateLimiter = new RateLimiter(properties, new SimpleMeterRegistry(), clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void tryAcquire_rejectsBurstAboveCapacityPerIp() {
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(request("/api/auth/login", "10.0.0.1")));
+        }
+        long wait = rateLimiter.tryAcquire(request("/api/auth/login", "10.0.0.1"));
+        assertEquals(TimeUnit.SECONDS.toNanos(20), wait);
+        assertEquals(0, rateLimiter.tryAcquire(request("/api/auth/login", "10.0.0.2")));
+        clock.addAndGet(wait);
+        assertEquals(0, rateLimiter.tryAcquire(request("/api/auth/login", "10.0.0.1")));
+    }
+
+    @Test
+    void tryAcquire_sharesLimitWithTrailingSlash() {
+        for (int i = 0; i < CAPACITY; i++) {
+            String path = i % 2 == 0 ? "/api/auth/login" : "/api/auth/login/";
+            assertEquals(0, rateLimiter.tryAcquire(request(path, "10.0.0.1")));
+        }
+        assertTrue(rateLimiter.tryAcquire(request("/api/auth/login//", "10.0.0.1")) > 0);
+    }
+
+    @Test
+    void tryAcquire_limitsUserAcrossAddresses() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("bob", "", List.of()));
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(request("/api/cabinet/comment", "10.0.0." + i)));
+        }
+        assertTrue(rateLimiter.tryAcquire(request("/api/cabinet/comment", "10.0.0.9")) > 0);
+    }
+
+    @Test
+    void tryAcquire_ignoresOtherPathsAndMethods() {
+        for (int i = 0; i < CAPACITY * 10; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(request("/api/cafe", "10.0.0.1")));
+            MockHttpServletRequest get = request("/api/auth/login", "10.0.0.1");
+            get.setMethod("GET");
+            assertEquals(0, rateLimiter.tryAcquire(get));
+        }
+    }
+
+    @Test
+    void evictIdle_forgetsRefilledBuckets() {
+        for (int i = 0; i <= CAPACITY; i++) {
+            rateLimiter.tryAcquire(request("/api/auth/login", "10.0.0.1"));
+        }
+        rateLimiter.evictIdle();
+        assertTrue(rateLimiter.tryAcquire(request("/api/auth/login", "10.0.0.1")) > 0);
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        rateLimiter.evictIdle();
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(request("/api/auth/login", "10.0.0.1")));
+        }
+    }
+
+    private Rule rule(String path, KeyType per) {
+        Rule rule = new Rule();
+        rule.setPath(path);
+        rule.setPer(per);
+        rule.setCapacity(CAPACITY);
+        rule.setRefillPeriod(Duration.ofMinutes(1));
+        return rule;
+    }
+
+    private MockHttpServletRequest request(String path, String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setServletPath(path);
+        request.setRemoteAddr(address);
+        return request;
+    }
+}
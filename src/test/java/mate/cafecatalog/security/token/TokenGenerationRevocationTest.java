@@ -0,0 +1,62 @@
+package mate.cafecatalog.security.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TokenGenerationRevocationTest {
+    private static final Long USER_ID = 7L;
+    private final AtomicLong storedGeneration = new AtomicLong(3);
+    private final Date expiration = new Date(System.currentTimeMillis() + 60_000);
+    private UserRepository userRepository;
+    private TokenRevocation tokenRevocation;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findTokenGenerationById(USER_ID))
+                .thenAnswer(invocation -> Optional.of(storedGeneration.get()));
+        when(userRepository.incrementTokenGeneration(USER_ID)).thenAnswer(invocation -> {
+            storedGeneration.incrementAndGet();
+            return 1;
+        });
+        tokenRevocation = new TokenGenerationRevocation(userRepository, new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void isValid_readsGenerationOnce() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(tokenRevocation.isValid("token", USER_ID, 3L, expiration));
+        }
+        assertFalse(tokenRevocation.isValid("token", USER_ID, 2L, expiration));
+        assertFalse(tokenRevocation.isValid("token", USER_ID, null, expiration));
+        verify(userRepository, times(1)).findTokenGenerationById(USER_ID);
+    }
+
+    @Test
+    void endSession_revokesEveryOlderToken() {
+        User user = new User();
+        user.setId(USER_ID);
+        Long generation = tokenRevocation.startSession(user);
+        assertEquals(4L, generation);
+        assertTrue(tokenRevocation.isValid("token", USER_ID, generation, expiration));
+        tokenRevocation.endSession("token", USER_ID);
+        assertFalse(tokenRevocation.isValid("token", USER_ID, generation, expiration));
+        assertTrue(tokenRevocation.isValid("token", USER_ID, 5L, expiration));
+    }
+}
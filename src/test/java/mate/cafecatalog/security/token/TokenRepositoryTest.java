@@ -0,0 +1,109 @@
+package mate.cafecatalog.security.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.persistence.EntityManagerFactory;
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+class TokenRepositoryTest {
+    // -Dtoken.seed.rows=1000000 to check the plans against a production sized table
+    private static final int SEED_ROWS = Integer.getInteger("token.seed.rows", 5_000);
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+    @Autowired
+    private TokenRepository tokenRepository;
+    @Autowired
+    private TokenService tokenService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ExpiredTokenPurger expiredTokenPurger;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void lookups_readOnlyMatchingRowsAsStaleTokensPileUp() {
+        User activeUser = user("active");
+        for (int i = 0; i < 3; i++) {
+            tokenService.save(Token.builder()
+                    .user(activeUser)
+                    .tokenHash(TokenDigest.of("active-" + i))
+                    .expiresAt(LocalDateTime.now().plusHours(1))
+                    .build());
+        }
+        seedStaleTokens(activeUser, SEED_ROWS);
+        assertTrue(tokenService.findByToken("active-0").isPresent());
+        assertEquals(3, tokenRepository.findAllValidTokensByUserId(activeUser.getId()).size());
+        // the indexes lead straight to the matching rows, whatever the number of stale ones,
+        // the index scan stops at the first row past them
+        assertEquals(2, scannedRows("SELECT * FROM token WHERE token_hash = '"
+                + TokenDigest.of("active-0") + "'"));
+        assertEquals(4, scannedRows("SELECT * FROM token WHERE user_id = " + activeUser.getId()
+                + " AND revoked = FALSE AND expired = FALSE"));
+
+        assertEquals(SEED_ROWS, expiredTokenPurger.purge());
+        assertEquals(3, tokenRepository.findAllValidTokensByUserId(activeUser.getId()).size());
+    }
+
+    private void seedStaleTokens(User user, int count) {
+        // expired an hour ago, generated inside the database to keep seeding fast
+        jdbcTemplate.update("INSERT INTO token (expired, revoked, token_hash, expires_at, user_id)"
+                + " SELECT TRUE, TRUE, LPAD(CAST(\"X\" AS VARCHAR), 64, '0'),"
+                + " DATEADD('HOUR', -1, CURRENT_TIMESTAMP), ? FROM SYSTEM_RANGE(1, ?)",
+                user.getId(), count);
+    }
+
+    @Test
+    void replaceUserTokens_statementCountDoesNotDependOnSessions() {
+        User user = user("sessions");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        tokenService.replaceUserTokens(user, "first", LocalDateTime.now().plusHours(1));
+        statistics.clear();
+        tokenService.replaceUserTokens(user, "second", LocalDateTime.now().plusHours(1));
+        long oneSessionStatements = statistics.getPrepareStatementCount();
+        for (int i = 0; i < 20; i++) {
+            tokenRepository.save(Token.builder()
+                    .user(user)
+                    .tokenHash(TokenDigest.of("session-" + i))
+                    .expiresAt(LocalDateTime.now().plusHours(1))
+                    .build());
+        }
+        statistics.clear();
+        tokenService.replaceUserTokens(user, "third", LocalDateTime.now().plusHours(1));
+        assertEquals(oneSessionStatements, statistics.getPrepareStatementCount());
+        List<Token> valid = tokenRepository.findAllValidTokensByUserId(user.getId());
+        assertEquals(1, valid.size());
+        assertEquals(TokenDigest.of("third"), valid.get(0).getTokenHash());
+    }
+
+    // rows read from the table, a full scan reads every token
+    private long scannedRows(String query) {
+        String plan = String.join("\n",
+                jdbcTemplate.queryForList("EXPLAIN ANALYZE " + query, String.class));
+        Matcher matcher = SCAN_COUNT.matcher(plan);
+        assertTrue(matcher.find(), plan);
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private User user(String name) {
+        User user = new User();
+        user.setEmail(name + "-tokens@gmail.com");
+        user.setUsername(name + "-tokens");
+        user.setPassword("password");
+        return userRepository.save(user);
+    }
+}
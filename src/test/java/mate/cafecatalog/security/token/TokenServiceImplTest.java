@@ -0,0 +1,52 @@
+package mate.cafecatalog.security.token;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TokenServiceImplTest {
+    private static final String TOKEN = "header.payload.signature";
+    private static final String TOKEN_HASH = TokenDigest.of(TOKEN);
+    private final Date expiration = new Date(System.currentTimeMillis() + 60_000);
+    private TokenRepository tokenRepository;
+    private TokenService tokenService;
+
+    @BeforeEach
+    void setUp() {
+        tokenRepository = mock(TokenRepository.class);
+        when(tokenRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        tokenService = new TokenServiceImpl(tokenRepository,
+                new TokenValidityCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void isValid_looksUpStoredTokenOnce() {
+        Token token = Token.builder().tokenHash(TOKEN_HASH).build();
+        when(tokenRepository.findByTokenHash(TOKEN_HASH)).thenReturn(Optional.of(token));
+        assertTrue(tokenService.isValid(TOKEN, expiration));
+        assertTrue(tokenService.isValid(TOKEN, expiration));
+        verify(tokenRepository, times(1)).findByTokenHash(TOKEN_HASH);
+    }
+
+    @Test
+    void isValid_seesRevocationImmediately() {
+        Token token = Token.builder().tokenHash(TOKEN_HASH).build();
+        when(tokenRepository.findByTokenHash(TOKEN_HASH)).thenReturn(Optional.of(token));
+        assertTrue(tokenService.isValid(TOKEN, expiration));
+        Token revoked = Token.builder().tokenHash(TOKEN_HASH).revoked(true).expired(true).build();
+        when(tokenRepository.findByTokenHash(TOKEN_HASH)).thenReturn(Optional.of(revoked));
+        tokenService.save(revoked);
+        assertFalse(tokenService.isValid(TOKEN, expiration));
+    }
+}
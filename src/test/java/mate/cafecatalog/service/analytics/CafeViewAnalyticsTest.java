@@ -0,0 +1,100 @@
+package mate.cafecatalog.service.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.stream.Collectors;
+import mate.cafecatalog.dto.response.CafeViewsResponseDto;
+import mate.cafecatalog.exception.DataProcessingException;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.model.CafeViewStats;
+import mate.cafecatalog.repository.CafeRepository;
+import mate.cafecatalog.repository.CafeViewStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class CafeViewAnalyticsTest {
+    private static final int VISITORS_COUNT = 20000;
+    @Autowired
+    private CafeViewCounter cafeViewCounter;
+    @Autowired
+    private CafeViewAnalytics cafeViewAnalytics;
+    @Autowired
+    private CafeRepository cafeRepository;
+    @Autowired
+    private CafeViewStatsRepository cafeViewStatsRepository;
+
+    @Test
+    void flush_accumulatesViewsAndMergesUniqueVisitors() {
+        Long hot = createCafe("Hot cafe");
+        Long quiet = createCafe("Quiet cafe");
+        for (long visitor = 0; visitor < VISITORS_COUNT; visitor++) {
+            cafeViewCounter.recordView(hot, visitor);
+        }
+        cafeViewCounter.recordView(quiet, "10.0.0.1");
+        cafeViewCounter.recordView(quiet, "10.0.0.1");
+        cafeViewAnalytics.flush();
+        // the same visitors again plus as many new ones
+        for (long visitor = 0; visitor < 2 * VISITORS_COUNT; visitor++) {
+            cafeViewCounter.recordView(hot, visitor);
+        }
+        cafeViewAnalytics.flush();
+        cafeViewAnalytics.flush();
+
+        CafeViewStats hotStats = cafeViewStatsRepository.findById(hot).orElseThrow();
+        assertEquals(3L * VISITORS_COUNT, hotStats.getViews());
+        assertEquals(2 * VISITORS_COUNT, hotStats.getUniqueVisitors(), 2 * VISITORS_COUNT * 0.05);
+        CafeViewStats quietStats = cafeViewStatsRepository.findById(quiet).orElseThrow();
+        assertEquals(2L, quietStats.getViews());
+        assertEquals(1L, quietStats.getUniqueVisitors());
+        List<String> mostViewed = cafeViewAnalytics.findMostViewed(100).stream()
+                .map(CafeViewsResponseDto::getName)
+                .collect(Collectors.toList());
+        assertTrue(mostViewed.indexOf("Hot cafe") < mostViewed.indexOf("Quiet cafe"));
+    }
+
+    @Test
+    void findMostViewed_rejectsInvalidCount() {
+        assertThrows(DataProcessingException.class, () -> cafeViewAnalytics.findMostViewed(0));
+    }
+
+    // per-thread allocation counters are a HotSpot extension, other VMs skip the check
+    @Test
+    void recordView_doesNotAllocate() {
+        ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMxBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMxBean)
+                .isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean allocationMxBean =
+                (com.sun.management.ThreadMXBean) threadMxBean;
+        allocationMxBean.setThreadAllocatedMemoryEnabled(true);
+        Long cafeId = createCafe("Allocation cafe");
+        Long visitor = 42L;
+        String address = "192.168.0.1";
+        for (int i = 0; i < 100_000; i++) {
+            cafeViewCounter.recordView(cafeId, visitor);
+            cafeViewCounter.recordView(cafeId, address);
+        }
+        int iterations = 1_000_000;
+        long allocatedBefore = allocationMxBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            cafeViewCounter.recordView(cafeId, visitor);
+        }
+        long allocated = allocationMxBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        assertTrue(allocated < 64 * 1024, "allocated " + allocated + " bytes");
+        cafeViewAnalytics.flush();
+    }
+
+    private Long createCafe(String name) {
+        Cafe cafe = new Cafe();
+        cafe.setName(name);
+        return cafeRepository.save(cafe).getId();
+    }
+}
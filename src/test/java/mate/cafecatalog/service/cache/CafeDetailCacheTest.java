@@ -0,0 +1,91 @@
+package mate.cafecatalog.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.persistence.EntityManagerFactory;
+import mate.cafecatalog.dto.mapper.ResponseDtoMapper;
+import mate.cafecatalog.dto.response.CafeResponseDto;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.model.Comment;
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.CafeRepository;
+import mate.cafecatalog.repository.UserRepository;
+import mate.cafecatalog.service.CafeService;
+import mate.cafecatalog.service.CommentService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+class CafeDetailCacheTest {
+    @Autowired
+    private CafeDetailCache cafeDetailCache;
+    @Autowired
+    private CafeService cafeService;
+    @Autowired
+    private CommentService commentService;
+    @Autowired
+    private ResponseDtoMapper<CafeResponseDto, Cafe> cafeResponseDtoMapper;
+    @Autowired
+    private CafeRepository cafeRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+    private Cafe cafe;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        cafe = new Cafe();
+        cafe.setName("Cached cafe");
+        cafe = cafeRepository.save(cafe);
+        user = new User();
+        user.setEmail("reader" + cafe.getId() + "@gmail.com");
+        user.setUsername("reader" + cafe.getId());
+        user.setPassword("password");
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void get_hitSkipsDatabase() {
+        statistics.clear();
+        CafeResponseDto loaded = load();
+        assertTrue(statistics.getPrepareStatementCount() > 0);
+        statistics.clear();
+        assertSame(loaded, load());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void get_reloadsAfterComment() {
+        assertTrue(load().getComments().isEmpty());
+        Comment comment = new Comment();
+        comment.setRating(5);
+        comment.setText("Great flat white");
+        comment.setCafe(cafe);
+        commentService.add(comment, user.getId()).join();
+        statistics.clear();
+        CafeResponseDto reloaded = load();
+        assertTrue(statistics.getPrepareStatementCount() > 0);
+        assertEquals(1, reloaded.getComments().size());
+        assertEquals("Great flat white", reloaded.getComments().get(0).getText());
+        assertEquals(5, reloaded.getRating());
+    }
+
+    // the details are mapped inside one session, as the controller does with open-in-view
+    private CafeResponseDto load() {
+        return cafeDetailCache.get(cafe.getId(), cafeId -> transactionTemplate.execute(
+                status -> cafeResponseDtoMapper.mapToDto(cafeService.get(cafeId))));
+    }
+}
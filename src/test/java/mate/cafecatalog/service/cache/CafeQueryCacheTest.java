@@ -0,0 +1,43 @@
+package mate.cafecatalog.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+class CafeQueryCacheTest {
+    private final CafeQueryCache cafeQueryCache = new CafeQueryCache(new SimpleMeterRegistry(),
+            100, Duration.ofMinutes(1));
+
+    @Test
+    void canonicalize_sortsOnlySetFilters() {
+        assertEquals(CafeQueryKey.canonicalize(Map.of("priceLevel", "$$, $,$")),
+                CafeQueryKey.canonicalize(Map.of("priceLevel", "$,$$")));
+        assertNotEquals(CafeQueryKey.canonicalize(Map.of("rating", "3-5,1-2")),
+                CafeQueryKey.canonicalize(Map.of("rating", "1-2,3-5")));
+    }
+
+    @Test
+    void invalidateDependingOn_keepsPagesNotUsingTheProperty() {
+        CafeQueryKey byPrice = key(Map.of("priceLevel", "$"), Sort.by("name"));
+        CafeQueryKey byRatingFilter = key(Map.of("rating", "3-5"), Sort.by("name"));
+        CafeQueryKey byRatingSort = key(Map.of(), Sort.by(Sort.Direction.DESC, "rating"));
+        List.of(byPrice, byRatingFilter, byRatingSort)
+                .forEach(key -> cafeQueryCache.put(key, List.of(1L, 2L), 2));
+        cafeQueryCache.invalidateDependingOn("rating");
+        assertTrue(cafeQueryCache.get(byPrice).isPresent());
+        assertTrue(cafeQueryCache.get(byRatingFilter).isEmpty());
+        assertTrue(cafeQueryCache.get(byRatingSort).isEmpty());
+    }
+
+    private CafeQueryKey key(Map<String, String> params, Sort sort) {
+        return CafeQueryKey.of(CafeQueryKey.canonicalize(params), PageRequest.of(0, 6, sort));
+    }
+}
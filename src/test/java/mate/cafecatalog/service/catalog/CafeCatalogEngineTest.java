@@ -0,0 +1,191 @@
+package mate.cafecatalog.service.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.model.Option;
+import mate.cafecatalog.repository.CafeRepository;
+import mate.cafecatalog.service.CafeService;
+import mate.cafecatalog.service.cache.CafeQueryCache;
+import mate.cafecatalog.service.cache.CafeQueryKey;
+import mate.cafecatalog.util.SortParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// the snapshot is disabled in tests, so the service answers from the specifications and
+// an enabled engine over the same rows must give the same pages
+@SpringBootTest
+class CafeCatalogEngineTest {
+    private static final int CAFES_COUNT = 21;
+    private static final String[] PRICE_LEVELS = {"$", "$$", "$$$"};
+    private static final String[] NOISE_LEVELS = {"low", "medium", "high"};
+    private static final List<String> SORTS = List.of("id", "rating", "minOrder",
+            "tablesNumber", "priceLevel", "noiseLevel", "latitude", "longitude");
+    @Autowired
+    private CafeService cafeService;
+    @Autowired
+    private CafeRepository cafeRepository;
+    @Autowired
+    private SortParser sortParser;
+    @Autowired
+    private CafeQueryCache cafeQueryCache;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @PersistenceContext
+    private EntityManager entityManager;
+    private CafeCatalogEngine engine;
+    // rows made by a test are removed after it, the context and database are shared
+    private final List<Long> cafeIds = new ArrayList<>();
+    private final List<Option> options = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            options.add(option("catalog wifi"));
+            options.add(option("catalog terrace"));
+        });
+        for (int i = 0; i < CAFES_COUNT; i++) {
+            Cafe cafe = new Cafe();
+            cafe.setName("Catalog cafe " + i);
+            cafe.setRating(i % 5 == 0 ? null : i % 4 + 1);
+            cafe.setMinOrder(i % 3 == 0 ? null : i % 4 * 50);
+            cafe.setTablesNumber(i % 6 == 0 ? null : i % 5 + 2);
+            cafe.setPriceLevel(i % 7 == 0 ? null : PRICE_LEVELS[i % 3]);
+            cafe.setNoiseLevel(i % 4 == 0 ? null : NOISE_LEVELS[i % 3]);
+            cafe.setLatitude(i % 5 == 2 ? null : 50.4 + i % 4 * 0.01);
+            cafe.setLongitude(i % 5 == 3 ? null : 30.5 + i % 3 * 0.01);
+            Set<Option> cafeOptions = new HashSet<>();
+            if (i % 2 == 0) {
+                cafeOptions.add(options.get(0));
+            }
+            if (i % 3 == 0) {
+                cafeOptions.add(options.get(1));
+            }
+            cafe.setOptions(cafeOptions);
+            cafeIds.add(cafeService.save(cafe).getId());
+        }
+        engine = new CafeCatalogEngine(cafeRepository, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            cafeIds.forEach(id -> entityManager.remove(entityManager.find(Cafe.class, id)));
+            options.forEach(option -> entityManager.remove(entityManager.merge(option)));
+        });
+        cafeIds.clear();
+        options.clear();
+    }
+
+    @Test
+    void findAll_filtersLikeSpecifications() {
+        List<Map<String, String>> filters = List.of(
+                Map.of("rating", "2-3"),
+                Map.of("rating", "3-"),
+                Map.of("rating", "-2"),
+                Map.of("minOrder", "50-100"),
+                Map.of("tables", "3-5"),
+                Map.of("noise", "low,high"),
+                Map.of("priceLevel", "$$"),
+                Map.of("priceLevel", "$,$$$"),
+                Map.of("option", "catalog wifi"),
+                Map.of("option", "catalog terrace:no"),
+                Map.of("option", "catalog wifi,catalog terrace:no"),
+                Map.of("rating", "1-4", "priceLevel", "$,$$", "option", "catalog wifi"));
+        for (Map<String, String> params : filters) {
+            assertSamePage(params, PageRequest.of(0, 1000, Sort.by("id")));
+        }
+    }
+
+    @Test
+    void findAll_sortsLikeSpecifications() {
+        for (String property : SORTS) {
+            assertSamePage(Collections.emptyMap(),
+                    PageRequest.of(0, 1000, sortParser.parseWithTiebreak(property)));
+            assertSamePage(Collections.emptyMap(),
+                    PageRequest.of(0, 1000, sortParser.parseWithTiebreak(property + ":DESC")));
+        }
+        assertSamePage(Collections.emptyMap(), PageRequest.of(0, 1000,
+                sortParser.parseWithTiebreak("priceLevel:ASC;rating:DESC")));
+    }
+
+    @Test
+    void findAll_pagesLikeSpecifications() {
+        Sort sort = sortParser.parseWithTiebreak("rating:DESC");
+        Map<String, String> params = Map.of("option", "catalog terrace:no");
+        for (int page = 0; page < 4; page++) {
+            assertSamePage(params, PageRequest.of(page, 4, sort));
+        }
+        assertSamePage(params, PageRequest.of(1000, 4, sort));
+    }
+
+    @Test
+    void findAll_leavesStringSortsToDatabase() {
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(engine.findAll(Collections.emptyMap(),
+                    PageRequest.of(0, 10, Sort.by("name"))).isEmpty());
+            assertTrue(engine.findAll(Collections.emptyMap(),
+                    PageRequest.of(0, 10, Sort.by("city"))).isEmpty());
+        });
+    }
+
+    @Test
+    void updateRating_returnsCafesWithNewRating() {
+        PageRequest pageRequest = PageRequest.of(0, 1000,
+                sortParser.parseWithTiebreak("rating:DESC"));
+        assertSamePage(Collections.emptyMap(), pageRequest);
+        Long cafeId = cafeIds.get(0);
+        transactionTemplate.executeWithoutResult(status ->
+                entityManager.find(Cafe.class, cafeId).setRating(5));
+        engine.updateRating(cafeId, 5);
+        assertSamePage(Collections.emptyMap(), pageRequest);
+        Cafe updated = transactionTemplate.execute(status -> engine.findAll(
+                Map.of("rating", "5-"), pageRequest).orElseThrow().getContent().stream()
+                .filter(cafe -> cafe.getId().equals(cafeId))
+                .findFirst()
+                .orElseThrow());
+        assertEquals(5, updated.getRating());
+    }
+
+    private void assertSamePage(Map<String, String> params, PageRequest pageRequest) {
+        cafeQueryCache.invalidateAll();
+        Page<Cafe> expected = cafeService.findAll(params, pageRequest);
+        Page<Cafe> actual = transactionTemplate.execute(status -> engine.findAll(
+                CafeQueryKey.canonicalize(params), pageRequest).orElseThrow());
+        String message = params + " " + pageRequest.getSort();
+        assertEquals(expected.getTotalElements(), actual.getTotalElements(), message);
+        assertEquals(ids(expected), ids(actual), message);
+        assertEquals(expected.map(Cafe::getRating).getContent(),
+                actual.map(Cafe::getRating).getContent(), message);
+    }
+
+    private List<Long> ids(Page<Cafe> page) {
+        return page.getContent().stream()
+                .map(Cafe::getId)
+                .collect(Collectors.toList());
+    }
+
+    private Option option(String name) {
+        Option option = new Option();
+        option.setName(name);
+        entityManager.persist(option);
+        return option;
+    }
+}
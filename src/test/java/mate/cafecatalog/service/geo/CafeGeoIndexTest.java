@@ -0,0 +1,76 @@
+package mate.cafecatalog.service.geo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import mate.cafecatalog.repository.CafeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CafeGeoIndexTest {
+    private static final double CENTER_LATITUDE = 50.45;
+    private static final double CENTER_LONGITUDE = 30.52;
+    private final List<Object[]> locations = new ArrayList<>();
+    private CafeGeoIndex cafeGeoIndex;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        for (long id = 1; id <= 2000; id++) {
+            locations.add(new Object[] {id,
+                    CENTER_LATITUDE + random.nextGaussian() * 0.2,
+                    CENTER_LONGITUDE + random.nextGaussian() * 0.3});
+        }
+        CafeRepository cafeRepository = mock(CafeRepository.class);
+        when(cafeRepository.findAllLocations()).thenReturn(locations);
+        cafeGeoIndex = new CafeGeoIndex(cafeRepository, 0.05);
+    }
+
+    @Test
+    void findWithin_matchesFullScan() {
+        List<Long> expected = scanByDistance(CENTER_LATITUDE, CENTER_LONGITUDE).stream()
+                .filter(location -> distance(CENTER_LATITUDE, CENTER_LONGITUDE, location) <= 7.5)
+                .map(location -> (Long) location[0])
+                .collect(Collectors.toList());
+        assertEquals(expected, cafeGeoIndex.findWithin(CENTER_LATITUDE, CENTER_LONGITUDE, 7.5));
+    }
+
+    @Test
+    void findNearest_matchesFullScan() {
+        double latitude = CENTER_LATITUDE + 0.6;
+        double longitude = CENTER_LONGITUDE - 0.4;
+        List<Long> expected = scanByDistance(latitude, longitude).stream()
+                .limit(25)
+                .map(location -> (Long) location[0])
+                .collect(Collectors.toList());
+        assertEquals(expected, cafeGeoIndex.findNearest(latitude, longitude, 25));
+    }
+
+    @Test
+    void invalidate_rebuildsWithNewCafes() {
+        cafeGeoIndex.findNearest(CENTER_LATITUDE, CENTER_LONGITUDE, 1);
+        locations.add(new Object[] {2001L, CENTER_LATITUDE, CENTER_LONGITUDE});
+        cafeGeoIndex.invalidate();
+        assertEquals(List.of(2001L),
+                cafeGeoIndex.findNearest(CENTER_LATITUDE, CENTER_LONGITUDE, 1));
+    }
+
+    private List<Object[]> scanByDistance(double latitude, double longitude) {
+        return locations.stream()
+                .sorted(Comparator.<Object[]>comparingDouble(
+                        location -> distance(latitude, longitude, location))
+                        .thenComparingLong(location -> (Long) location[0]))
+                .collect(Collectors.toList());
+    }
+
+    private double distance(double latitude, double longitude, Object[] location) {
+        return CafeGeoIndex.distanceKm(latitude, longitude,
+                (Double) location[1], (Double) location[2]);
+    }
+}
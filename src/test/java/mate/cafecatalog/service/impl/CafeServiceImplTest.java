@@ -0,0 +1,219 @@
+package mate.cafecatalog.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import mate.cafecatalog.dto.mapper.ShortInfoCafeMapper;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.model.Option;
+import mate.cafecatalog.model.PicturePath;
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.CafeRepository;
+import mate.cafecatalog.repository.UserRepository;
+import mate.cafecatalog.service.CafeService;
+import mate.cafecatalog.service.cache.CafeQueryCache;
+import mate.cafecatalog.util.CursorPage;
+import mate.cafecatalog.util.SortParser;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+class CafeServiceImplTest {
+    private static final int CAFES_COUNT = 12;
+    @Autowired
+    private CafeService cafeService;
+    @Autowired
+    private CafeRepository cafeRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private SortParser sortParser;
+    @Autowired
+    private CafeQueryCache cafeQueryCache;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @PersistenceContext
+    private EntityManager entityManager;
+    private Statistics statistics;
+    // rows made by a test are removed after it, the context and database are shared
+    private final List<Long> cafeIds = new ArrayList<>();
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<Object> createdRows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        cafeQueryCache.invalidateAll();
+        transactionTemplate.executeWithoutResult(status -> {
+            Option vegan = option("vegan");
+            Option alcohol = option("alcohol");
+            for (int i = 0; i < CAFES_COUNT; i++) {
+                Cafe cafe = new Cafe();
+                cafe.setName("Cafe " + i);
+                cafe.setRating(i % 4 == 0 ? null : i % 3);
+                cafe.setPriceLevel(i % 2 == 0 ? "$" : "$$");
+                cafe.setOptions(new HashSet<>(List.of(vegan, alcohol)));
+                cafe.setImageLink(new HashSet<>(List.of(picturePath(i, 0), picturePath(i, 1))));
+                entityManager.persist(cafe);
+                cafeIds.add(cafe.getId());
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            userIds.forEach(id -> entityManager.remove(entityManager.find(User.class, id)));
+            cafeIds.forEach(id -> entityManager.remove(entityManager.find(Cafe.class, id)));
+            createdRows.forEach(row -> entityManager.remove(entityManager.merge(row)));
+        });
+        cafeIds.clear();
+        userIds.clear();
+        createdRows.clear();
+    }
+
+    @Test
+    void findAll_statementCountDoesNotDependOnPageSize() {
+        long smallPageStatements = countListingStatements(2);
+        long largePageStatements = countListingStatements(CAFES_COUNT);
+        assertEquals(smallPageStatements, largePageStatements);
+    }
+
+    @Test
+    void findAll_equivalentFiltersShareCachedIds() {
+        PageRequest pageRequest = PageRequest.of(0, 4, Sort.by("id"));
+        Page<Cafe> first = cafeService.findAll(Map.of("priceLevel", "$$, $"), pageRequest);
+        statistics.clear();
+        Page<Cafe> second = cafeService.findAll(Map.of("priceLevel", "$,$$"), pageRequest);
+        assertEquals(first.getTotalElements(), second.getTotalElements());
+        assertEquals(first.map(Cafe::getId).getContent(), second.map(Cafe::getId).getContent());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findAllAfter_walksAllCafesInSortOrder() {
+        Sort sort = sortParser.parseWithTiebreak("rating:DESC;name");
+        List<Long> expected = cafeRepository.findAll(sort).stream()
+                .map(Cafe::getId)
+                .collect(Collectors.toList());
+        List<Long> actual = new ArrayList<>();
+        String after = "";
+        do {
+            CursorPage<Cafe> page = cafeService.findAllAfter(Collections.emptyMap(), after, 5, sort);
+            page.getItems().forEach(cafe -> actual.add(cafe.getId()));
+            after = page.getNextCursor();
+        } while (after != null);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void findFavouritesAfter_walksFavouritesWithConstantStatementsPerPage() {
+        User user = new User();
+        user.setEmail("favourites@gmail.com");
+        user.setUsername("favourites");
+        user.setPassword("password");
+        Long userId = userRepository.save(user).getId();
+        userIds.add(userId);
+        Sort sort = sortParser.parseWithTiebreak("rating:DESC;name");
+        List<Long> expected = cafeRepository.findAll(sort).stream()
+                .map(Cafe::getId)
+                .filter(id -> cafeIds.contains(id) && id % 2 == 0)
+                .collect(Collectors.toList());
+        expected.forEach(id -> userRepository.addFavourite(userId, id));
+        List<Long> actual = new ArrayList<>();
+        String after = "";
+        do {
+            statistics.clear();
+            CursorPage<Cafe> page = cafeService.findFavouritesAfter(userId, after, 2, sort);
+            assertEquals(3, statistics.getPrepareStatementCount());
+            page.getItems().forEach(cafe -> actual.add(cafe.getId()));
+            after = page.getNextCursor();
+        } while (after != null);
+        assertEquals(expected, actual);
+        Page<Cafe> offsetPage = cafeService.findFavourites(userId, PageRequest.of(1, 2, sort));
+        assertEquals(expected.size(), offsetPage.getTotalElements());
+        assertEquals(expected.subList(2, 4), offsetPage.map(Cafe::getId).getContent());
+    }
+
+    @Test
+    void save_newCafeIsVisibleToExcludingOptionFilters() {
+        Map<String, String> params = Map.of("option", "alcohol:no");
+        PageRequest pageRequest = PageRequest.of(0, 1000, Sort.by("id"));
+        cafeService.findAll(params, pageRequest);
+        Cafe cafe = new Cafe();
+        cafe.setName("Sober cafe");
+        Long id = cafeService.save(cafe).getId();
+        cafeIds.add(id);
+        assertTrue(cafeService.findAll(params, pageRequest).map(Cafe::getId).getContent()
+                .contains(id));
+    }
+
+    @Test
+    void findNearest_filtersInMemoryAndHydratesOnce() {
+        List<Long> cheap = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Cafe cafe = new Cafe();
+            cafe.setName("Harbour cafe " + i);
+            cafe.setPriceLevel(i % 4 == 0 ? "$" : "$$");
+            cafe.setLatitude(-33.86 + i * 0.01);
+            cafe.setLongitude(151.21);
+            Long id = cafeService.save(cafe).getId();
+            cafeIds.add(id);
+            if (i % 4 == 0) {
+                cheap.add(id);
+            }
+        }
+        Map<String, String> params = Map.of("near", "-33.86,151.21", "priceLevel", "$");
+        cafeService.findNearest(params, 2);
+        statistics.clear();
+        List<Cafe> nearest = cafeService.findNearest(params, 2);
+        assertEquals(cheap, nearest.stream().map(Cafe::getId).collect(Collectors.toList()));
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    private long countListingStatements(int pageSize) {
+        statistics.clear();
+        Page<Cafe> page = cafeService.findAll(Collections.emptyMap(),
+                PageRequest.of(0, pageSize, Sort.by("id")));
+        ShortInfoCafeMapper mapper = new ShortInfoCafeMapper();
+        page.forEach(mapper::mapToDto);
+        assertEquals(pageSize, page.getNumberOfElements());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Option option(String name) {
+        Option option = new Option();
+        option.setName(name);
+        entityManager.persist(option);
+        createdRows.add(option);
+        return option;
+    }
+
+    private PicturePath picturePath(int cafe, int picture) {
+        PicturePath picturePath = new PicturePath();
+        picturePath.setPath("/images/" + cafe + "/" + picture + ".jpeg");
+        entityManager.persist(picturePath);
+        createdRows.add(picturePath);
+        return picturePath;
+    }
+}
@@ -0,0 +1,247 @@
+package mate.cafecatalog.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManagerFactory;
+import mate.cafecatalog.dto.response.CommentResponseDto;
+import mate.cafecatalog.exception.DataProcessingException;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.model.Comment;
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.CafeRepository;
+import mate.cafecatalog.repository.CommentRepository;
+import mate.cafecatalog.repository.UserRepository;
+import mate.cafecatalog.service.CafeService;
+import mate.cafecatalog.service.CommentService;
+import mate.cafecatalog.service.UserService;
+import mate.cafecatalog.service.rating.CafeRatingReconciler;
+import mate.cafecatalog.util.CursorPage;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+class CommentServiceImplTest {
+    private static final int COMMENTS_COUNT = 2000;
+    private static final int THREADS_COUNT = 8;
+    private static final int BURST_COUNT = 800;
+    @Autowired
+    private CommentService commentService;
+    @Autowired
+    private CafeRepository cafeRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private CafeService cafeService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private CafeRatingReconciler cafeRatingReconciler;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+    private Cafe cafe;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        cafe = new Cafe();
+        cafe.setName("Busy cafe");
+        cafe.setRating(4);
+        cafe = cafeRepository.save(cafe);
+        user = new User();
+        user.setEmail("commenter" + cafe.getId() + "@gmail.com");
+        user.setUsername("commenter" + cafe.getId());
+        user.setPassword("password");
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void add_concurrentCommentsKeepExactRatingTotals() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_COUNT);
+        long expectedSum = 0;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < COMMENTS_COUNT; i++) {
+                int rating = i % 5 + 1;
+                expectedSum += rating;
+                futures.add(executor.submit(() -> {
+                    Comment comment = new Comment();
+                    comment.setRating(rating);
+                    comment.setCafe(cafe);
+                    commentService.add(comment, user.getId()).join();
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Cafe updated = cafeRepository.findById(cafe.getId()).orElseThrow();
+        assertEquals(COMMENTS_COUNT, updated.getRatingCount());
+        assertEquals(expectedSum, updated.getRatingSum());
+        assertEquals((int) (expectedSum / COMMENTS_COUNT), updated.getRating());
+    }
+
+    @Test
+    void reconcile_restoresDriftedTotals() {
+        for (int rating = 1; rating <= 5; rating++) {
+            Comment comment = new Comment();
+            comment.setRating(rating);
+            comment.setCafe(cafe);
+            commentService.add(comment, user.getId()).join();
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Cafe drifted = cafeRepository.findById(cafe.getId()).orElseThrow();
+            drifted.setRatingSum(1L);
+            drifted.setRatingCount(1L);
+            drifted.setRating(1);
+        });
+        cafeRatingReconciler.reconcile();
+        Cafe reconciled = cafeRepository.findById(cafe.getId()).orElseThrow();
+        assertEquals(5, reconciled.getRatingCount());
+        assertEquals(15, reconciled.getRatingSum());
+        assertEquals(3, reconciled.getRating());
+    }
+
+    @Test
+    void add_burstIsWrittenInBatches() {
+        Cafe other = new Cafe();
+        other.setName("Other busy cafe");
+        Long otherId = cafeRepository.save(other).getId();
+        Cafe missing = new Cafe();
+        missing.setId(-1L);
+        List<CompletableFuture<CommentResponseDto>> futures = new ArrayList<>();
+        statistics.clear();
+        for (int i = 0; i < BURST_COUNT; i++) {
+            Comment comment = new Comment();
+            comment.setRating(5);
+            comment.setCafe(i % 2 == 0 ? cafe : other);
+            futures.add(commentService.add(comment, user.getId()));
+        }
+        Comment lost = new Comment();
+        lost.setRating(1);
+        lost.setCafe(missing);
+        CompletableFuture<CommentResponseDto> lostFuture = commentService.add(lost,
+                user.getId());
+        Set<Long> ids = futures.stream()
+                .map(CompletableFuture::join)
+                .map(CommentResponseDto::getId)
+                .collect(Collectors.toSet());
+        CompletionException exception = assertThrows(CompletionException.class,
+                lostFuture::join);
+        assertInstanceOf(DataProcessingException.class, exception.getCause());
+        assertEquals(BURST_COUNT, ids.size());
+        assertTrue(statistics.getPrepareStatementCount() < BURST_COUNT / 4);
+        CommentResponseDto last = futures.get(BURST_COUNT - 1).join();
+        assertEquals(5, last.getCafeRating());
+        assertEquals(BURST_COUNT / 2,
+                cafeRepository.findById(otherId).orElseThrow().getRatingCount());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void add_batchesFasterThanSingleInserts() throws Exception {
+        // the path add took before batching, one transaction per comment
+        long singleNanos = measure(comment -> transactionTemplate.execute(status -> {
+            comment.setUser(userService.getReference(user.getId()));
+            cafeService.processRatings(cafe.getId(), comment.getRating(), 1);
+            Long id = commentRepository.save(comment).getId();
+            return commentRepository.findResponsesByIdIn(List.of(id)).get(0);
+        }));
+        long batchedNanos = measure(comment -> commentService.add(comment, user.getId()).join());
+        assertTrue(batchedNanos < singleNanos, "batched " + batchedNanos
+                + " ns, single inserts " + singleNanos + " ns for " + COMMENTS_COUNT);
+    }
+
+    private long measure(Consumer<Comment> add) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_COUNT);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < COMMENTS_COUNT; i++) {
+                Comment comment = new Comment();
+                comment.setRating(i % 5 + 1);
+                comment.setCafe(cafe);
+                futures.add(executor.submit(() -> add.accept(comment)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void findLatestByCafeId_walksCommentsNewestFirst() {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Comment comment = new Comment();
+            comment.setText("Comment " + i);
+            comment.setCafe(cafe);
+            expected.add(0, commentService.add(comment, user.getId()).join().getId());
+        }
+        List<Long> actual = new ArrayList<>();
+        String after = "";
+        do {
+            statistics.clear();
+            CursorPage<CommentResponseDto> page = commentService.findLatestByCafeId(cafe.getId(),
+                    after, 10);
+            assertEquals(1, statistics.getPrepareStatementCount());
+            page.getItems().forEach(comment -> actual.add(comment.getId()));
+            after = page.getNextCursor();
+        } while (after != null);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void findLatestByUserId_walksCommentsNewestFirst() {
+        Cafe other = new Cafe();
+        other.setName("Another cafe");
+        other = cafeRepository.save(other);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Comment comment = new Comment();
+            comment.setText("Comment " + i);
+            comment.setCafe(i % 2 == 0 ? cafe : other);
+            expected.add(0, commentService.add(comment, user.getId()).join().getId());
+        }
+        List<Long> actual = new ArrayList<>();
+        String after = "";
+        do {
+            statistics.clear();
+            CursorPage<CommentResponseDto> page = commentService.findLatestByUserId(user.getId(),
+                    after, 10);
+            assertEquals(1, statistics.getPrepareStatementCount());
+            page.getItems().forEach(comment -> actual.add(comment.getId()));
+            after = page.getNextCursor();
+        } while (after != null);
+        assertEquals(expected, actual);
+    }
+}
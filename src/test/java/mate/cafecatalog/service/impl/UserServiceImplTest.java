@@ -0,0 +1,85 @@
+package mate.cafecatalog.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import mate.cafecatalog.exception.DataProcessingException;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.model.User;
+import mate.cafecatalog.repository.CafeRepository;
+import mate.cafecatalog.repository.UserRepository;
+import mate.cafecatalog.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class UserServiceImplTest {
+    private static final int CAFES_COUNT = 4;
+    private static final int TOGGLES_COUNT = 400;
+    private static final int THREADS_COUNT = 8;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CafeRepository cafeRepository;
+    private final List<Long> cafeIds = new ArrayList<>();
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < CAFES_COUNT; i++) {
+            Cafe cafe = new Cafe();
+            cafe.setName("Favourite cafe " + i);
+            cafeIds.add(cafeRepository.save(cafe).getId());
+        }
+        user = new User();
+        user.setEmail("fan" + cafeIds.get(0) + "@gmail.com");
+        user.setUsername("fan" + cafeIds.get(0));
+        user.setPassword("password");
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void addToFavourites_concurrentTogglesKeepOneRowPerCafe() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_COUNT);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < TOGGLES_COUNT; i++) {
+                Long cafeId = cafeIds.get(i % CAFES_COUNT);
+                boolean add = i % 3 != 0;
+                futures.add(executor.submit(() -> {
+                    if (add) {
+                        userService.addToFavourites(user.getId(), cafeId);
+                    } else {
+                        userService.removeFromFavourites(user.getId(), cafeId);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (Long cafeId : cafeIds) {
+            userService.addToFavourites(user.getId(), cafeId);
+            userService.addToFavourites(user.getId(), cafeId);
+            assertEquals(1, userRepository.removeFavourite(user.getId(), cafeId));
+            assertEquals(0, userRepository.removeFavourite(user.getId(), cafeId));
+        }
+    }
+
+    @Test
+    void addToFavourites_missingCafe_throws() {
+        assertThrows(DataProcessingException.class,
+                () -> userService.addToFavourites(user.getId(), Long.MAX_VALUE));
+    }
+}
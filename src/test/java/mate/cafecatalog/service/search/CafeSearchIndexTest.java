@@ -0,0 +1,80 @@
+package mate.cafecatalog.service.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import mate.cafecatalog.model.Cafe;
+import mate.cafecatalog.repository.CafeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CafeSearchIndexTest {
+    private CafeSearchIndex cafeSearchIndex;
+    private CafeRepository cafeRepository;
+    private List<Object[]> texts;
+
+    @BeforeEach
+    void setUp() {
+        texts = new ArrayList<>();
+        texts.add(new Object[] {1L, "Coffee House", "Specialty coffee", "Coffee and cakes"});
+        texts.add(new Object[] {2L, "Green Garden", "Vegan cafe", "Coffee, salads and tea"});
+        texts.add(new Object[] {3L, "Cake Corner", "Desserts", null});
+        cafeRepository = mock(CafeRepository.class);
+        when(cafeRepository.findAllTexts()).thenReturn(texts);
+        cafeSearchIndex = new CafeSearchIndex(cafeRepository);
+    }
+
+    @Test
+    void search_ranksNameMatchesFirst() {
+        assertEquals(List.of(1L, 2L), cafeSearchIndex.search("COFFEE"));
+        assertEquals(List.of(3L, 1L), cafeSearchIndex.search("cake cakes"));
+        assertEquals(List.of(), cafeSearchIndex.search("pizza"));
+    }
+
+    @Test
+    void suggest_ordersByDocumentFrequency() {
+        assertEquals(List.of("cafe", "cake", "cakes"), cafeSearchIndex.suggest("Ca", 3));
+        assertEquals(List.of("coffee"), cafeSearchIndex.suggest("cof", 3));
+    }
+
+    @Test
+    void suggest_completesSingleCharacter() {
+        assertEquals(List.of("coffee", "cafe", "cake"), cafeSearchIndex.suggest("C", 3));
+        assertEquals(List.of("tea"), cafeSearchIndex.suggest("green t", 3));
+        assertEquals(List.of(), cafeSearchIndex.suggest(" ", 3));
+    }
+
+    @Test
+    void index_replacesChangedCafe() {
+        Cafe cafe = new Cafe();
+        cafe.setId(3L);
+        cafe.setName("Tea Room");
+        cafeSearchIndex.index(cafe);
+        assertEquals(List.of(3L, 2L), cafeSearchIndex.search("tea"));
+        assertEquals(List.of("cafe", "cakes"), cafeSearchIndex.suggest("ca", 3));
+        cafeSearchIndex.remove(3L);
+        assertEquals(List.of(2L), cafeSearchIndex.search("tea"));
+    }
+
+    @Test
+    void refresh_keepsCafesIndexedWhileReading() {
+        assertEquals(List.of(), cafeSearchIndex.search("latte"));
+        Cafe cafe = new Cafe();
+        cafe.setId(4L);
+        cafe.setName("Latte Bar");
+        // the cafe is saved after the refresh read the texts, which don't have it
+        when(cafeRepository.findAllTexts()).thenAnswer(invocation -> {
+            List<Object[]> stale = new ArrayList<>(texts);
+            cafeSearchIndex.index(cafe);
+            cafeSearchIndex.remove(2L);
+            return stale;
+        });
+        cafeSearchIndex.refresh();
+        assertEquals(List.of(4L), cafeSearchIndex.search("latte"));
+        assertEquals(List.of(), cafeSearchIndex.search("vegan"));
+        assertEquals(List.of("latte"), cafeSearchIndex.suggest("l", 3));
+    }
+}